@@ -1,28 +1,61 @@
 package com.ezmp3;
 
+import com.ezmp3.controller.SharedSecretInterceptor;
+import com.ezmp3.util.DirectBufferPool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
     
+    /**
+     * 音频下载写入和缓存校验共用的直接内存缓冲池
+     */
     @Bean
-    public WebMvcConfigurer corsConfigurer() {
+    public DirectBufferPool directBufferPool(
+            @Value("${app.io.buffer-count:64}") int bufferCount,
+            @Value("${app.io.buffer-size:65536}") int bufferSize,
+            @Value("${app.io.acquire-timeout:100}") long acquireTimeout) {
+        return new DirectBufferPool(bufferCount, bufferSize, acquireTimeout);
+    }
+    
+    @Bean
+    public WebMvcConfigurer corsConfigurer(
+            @Value("${app.cluster.token:}") String clusterToken,
+            @Value("${app.admin.token:}") String adminToken) {
         return new WebMvcConfigurer() {
             @Override
             public void addCorsMappings(CorsRegistry registry) {
-                registry.addMapping("/**")
-                        .allowedOrigins("*")
-                        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                        .allowedHeaders("*")
-                        .maxAge(3600);
+                // 只对前端使用的公开接口开放跨域，内部接口和运维接口不允许浏览器跨域调用
+                for (String path : new String[]{"/v1/download", "/v1/direct-download", "/v1/analyze"}) {
+                    registry.addMapping(path)
+                            .allowedOrigins("*")
+                            .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                            .allowedHeaders("*")
+                            .exposedHeaders("X-Encoding-Profile")
+                            .maxAge(3600);
+                }
+            }
+            
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                // 节点间接口需携带集群共享密钥
+                registry.addInterceptor(new SharedSecretInterceptor(clusterToken))
+                        .addPathPatterns("/v1/internal/**");
+                // 运维接口使用单独的密钥，避免节点密钥泄露后可以操作预取和查看内部状态
+                registry.addInterceptor(new SharedSecretInterceptor(adminToken))
+                        .addPathPatterns("/v1/admin/**");
             }
         };
     }
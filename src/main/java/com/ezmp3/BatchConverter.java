@@ -0,0 +1,350 @@
+package com.ezmp3;
+
+import com.ezmp3.model.EncodingProfile;
+import com.ezmp3.service.impl.Mp3Encoder;
+import lombok.extern.slf4j.Slf4j;
+import ws.schild.jave.MultimediaObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地媒体库批量转换命令行入口
+ *
+ * 不启动Spring和Web服务，直接复用转换服务的编码阶段（Mp3Encoder），用按CPU核数设置并行度的
+ * 工作窃取线程池并行转换。已转换的输入按内容哈希跳过，每完成一个文件就写入检查点，
+ * 中断后重新执行同一命令即可继续。
+ *
+ * 用法:
+ * java -cp ezmp3-backend.jar -Dloader.main=com.ezmp3.BatchConverter
+ *      org.springframework.boot.loader.launch.PropertiesLauncher
+ *      &lt;输入目录|文件列表&gt; &lt;输出目录&gt; [--bitrate 192] [--profile balanced] [--threads 0]
+ */
+@Slf4j
+public class BatchConverter {
+
+    private static final String CHECKPOINT_FILE = ".ezmp3-batch.log";
+    
+    private static final String USAGE =
+            "用法: BatchConverter <输入目录|文件列表> <输出目录> [--bitrate 192] [--profile balanced] [--threads 0]";
+    
+    private static final Set<Integer> BITRATES = Set.of(64, 128, 192, 256, 320);
+
+    private static final Set<String> MEDIA_EXTENSIONS = Set.of(
+            "mp4", "m4a", "mkv", "webm", "mov", "avi", "flv", "wmv",
+            "mp3", "wav", "flac", "aac", "ogg", "opus", "wma");
+
+    private final Mp3Encoder mp3Encoder = new Mp3Encoder();
+
+    private final Path outputDir;
+    private final int bitrate;
+    private final EncodingProfile profile;
+
+    /**
+     * 检查点：转换键（内容哈希+比特率+档位） -> 输出文件
+     */
+    private final Map<String, Path> converted = new ConcurrentHashMap<>();
+
+    private BufferedWriter checkpointWriter;
+
+    private final AtomicInteger convertedFiles = new AtomicInteger();
+    private final AtomicInteger skippedFiles = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private final AtomicLong audioMillis = new AtomicLong();
+
+    public BatchConverter(Path outputDir, int bitrate, EncodingProfile profile) {
+        this.outputDir = outputDir.toAbsolutePath().normalize();
+        this.bitrate = bitrate;
+        this.profile = profile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        int bitrate = 192;
+        EncodingProfile profile = EncodingProfile.BALANCED;
+        int threads = 0;
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                String option = args[i];
+                if (i + 1 >= args.length || args[i + 1].startsWith("--")) {
+                    throw new IllegalArgumentException("参数缺少取值: " + option);
+                }
+                String value = args[i + 1];
+                switch (option) {
+                    case "--bitrate" -> bitrate = parseInt(option, value);
+                    case "--profile" -> profile = EncodingProfile.fromName(value);
+                    case "--threads" -> threads = parseInt(option, value);
+                    default -> throw new IllegalArgumentException("未知参数: " + option);
+                }
+            }
+            if (!BITRATES.contains(bitrate)) {
+                throw new IllegalArgumentException("比特率必须是64、128、192、256或320");
+            }
+            if (profile == null) {
+                throw new IllegalArgumentException("编码档位必须是best、balanced、fast或speech");
+            }
+            if (threads < 0) {
+                throw new IllegalArgumentException("并行度不能小于0");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        BatchConverter converter = new BatchConverter(Paths.get(args[1]), bitrate, profile);
+        boolean success = converter.run(Paths.get(args[0]), threads);
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * 转换输入目录中的所有媒体文件，或文件列表中列出的文件
+     *
+     * @param input 输入目录或每行一个路径的文件列表
+     * @param threads 并行度
+     * @return 如果所有文件都转换成功或已跳过则返回true
+     */
+    public boolean run(Path input, int threads) throws IOException, InterruptedException {
+        input = input.toAbsolutePath().normalize();
+        Files.createDirectories(outputDir);
+        loadCheckpoint();
+
+        List<Path> inputs = collectInputs(input);
+        Map<Path, Path> targets = assignTargets(input, inputs);
+        log.info("批量转换开始: {} 个文件, 并行度 {}, 比特率 {}k, 编码档位 {}", inputs.size(), threads, bitrate, profile);
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (BufferedWriter writer = Files.newBufferedWriter(outputDir.resolve(CHECKPOINT_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            checkpointWriter = writer;
+            List<Callable<Void>> tasks = new ArrayList<>(inputs.size());
+            for (Path file : inputs) {
+                Path target = targets.get(file);
+                tasks.add(() -> {
+                    convertOne(file, target);
+                    return null;
+                });
+            }
+            pool.invokeAll(tasks);
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        log.info("批量转换完成: 转换 {} 个, 跳过 {} 个, 失败 {} 个, 耗时 {} s",
+                convertedFiles.get(), skippedFiles.get(), failedFiles.get(), String.format("%.1f", seconds));
+        log.info("吞吐量: {} 文件/秒, {} 音频秒/秒",
+                String.format("%.2f", convertedFiles.get() / seconds),
+                String.format("%.1f", audioMillis.get() / 1000.0 / seconds));
+        return failedFiles.get() == 0;
+    }
+
+    private void convertOne(Path file, Path target) {
+        Path temp = null;
+        try {
+            String key = contentHash(file) + "_" + bitrate + "_" + profile.name().toLowerCase();
+
+            Path previous = converted.get(key);
+            if (previous != null && Files.isRegularFile(previous)) {
+                // 内容相同的文件只转换一次，其他路径直接复制已有结果
+                if (!previous.equals(target) && !Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(previous, target);
+                }
+                skippedFiles.incrementAndGet();
+                log.debug("已转换过，跳过: {}", file);
+                return;
+            }
+
+            long durationMillis = new MultimediaObject(file.toFile()).getInfo().getDuration();
+
+            // 先写入每个任务独有的临时文件，完成后再重命名，中断时不会留下不完整的MP3
+            Files.createDirectories(target.getParent());
+            temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            mp3Encoder.encode(file.toFile(), temp.toFile(), bitrate, profile, null, null);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            converted.put(key, target);
+            writeCheckpoint(key, target);
+            convertedFiles.incrementAndGet();
+            audioMillis.addAndGet(Math.max(0, durationMillis));
+            log.info("已转换: {} -> {}", file, target);
+        } catch (Exception e) {
+            failedFiles.incrementAndGet();
+            log.error("转换失败: {}", file, e);
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * 收集输入文件：目录按扩展名递归查找媒体文件，否则按文件列表读取
+     */
+    private List<Path> collectInputs(Path input) throws IOException {
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> stream = Files.walk(input)) {
+                return stream.filter(Files::isRegularFile)
+                        .filter(path -> MEDIA_EXTENSIONS.contains(extension(path)))
+                        .filter(path -> !path.startsWith(outputDir))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+
+        return Files.readAllLines(input, StandardCharsets.UTF_8).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> Paths.get(line).toAbsolutePath().normalize())
+                .filter(Files::isRegularFile)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 为每个输入分配输出路径
+     *
+     * 多个输入映射到同一个输出文件时（文件列表中不同目录下的同名文件，或同一目录下只有扩展名不同的文件），
+     * 这些输入的文件名都加上输入路径哈希的后缀，保证输出互不覆盖，且重复执行时得到相同的文件名。
+     */
+    private Map<Path, Path> assignTargets(Path input, List<Path> inputs) {
+        Map<String, List<Path>> byTarget = new HashMap<>();
+        for (Path file : inputs) {
+            // 按小写比较，避免在不区分大小写的文件系统上冲突
+            String target = targetFor(input, file, null).toString().toLowerCase(Locale.ROOT);
+            byTarget.computeIfAbsent(target, key -> new ArrayList<>()).add(file);
+        }
+
+        Map<Path, Path> targets = new HashMap<>();
+        for (List<Path> files : byTarget.values()) {
+            for (Path file : files) {
+                String suffix = files.size() > 1 ? pathHash(file) : null;
+                targets.put(file, targetFor(input, file, suffix));
+            }
+            if (files.size() > 1) {
+                log.warn("{} 个输入文件的输出文件名相同，已加上哈希后缀: {}", files.size(), files);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 输出路径：目录输入保留相对目录结构，文件列表输入直接放在输出目录下
+     *
+     * @param suffix 文件名后缀，为空时不添加
+     */
+    private Path targetFor(Path input, Path file, String suffix) {
+        Path relative = Files.isDirectory(input) ? input.relativize(file) : file.getFileName();
+        String name = relative.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String mp3Name = (dot > 0 ? name.substring(0, dot) : name)
+                + (suffix != null ? "_" + suffix : "") + ".mp3";
+        Path parent = relative.getParent();
+        return parent != null ? outputDir.resolve(parent).resolve(mp3Name) : outputDir.resolve(mp3Name);
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path checkpoint = outputDir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return;
+        }
+        // 格式: 转换键\t输出文件
+        for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length == 2) {
+                converted.put(fields[0], Paths.get(fields[1]));
+            }
+        }
+        log.info("已加载检查点: {} 个已转换文件", converted.size());
+    }
+
+    private synchronized void writeCheckpoint(String key, Path target) throws IOException {
+        checkpointWriter.write(key + "\t" + target.toAbsolutePath());
+        checkpointWriter.newLine();
+        checkpointWriter.flush();
+    }
+
+    private static String contentHash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 输入文件绝对路径的短哈希，用于区分同名输出
+     */
+    private static String pathHash(Path file) {
+        byte[] hash = sha256().digest(file.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 4);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " 必须是整数: " + value);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("无法删除临时文件: {}", path);
+        }
+    }
+
+    private static String extension(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
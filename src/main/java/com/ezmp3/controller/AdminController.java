@@ -0,0 +1,94 @@
+package com.ezmp3.controller;
+
+import com.ezmp3.service.ConversionJobQueue;
+import com.ezmp3.service.ConversionScheduler;
+import com.ezmp3.service.PrefetchService;
+import com.ezmp3.service.impl.YouTubeApiClient;
+import com.ezmp3.util.DirectBufferPool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运维管理控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    
+    private final PrefetchService prefetchService;
+    private final YouTubeApiClient youTubeApiClient;
+    private final ConversionScheduler conversionScheduler;
+    private final ConversionJobQueue conversionJobQueue;
+    private final DirectBufferPool bufferPool;
+    
+    /**
+     * 获取当前热门视频
+     * 
+     * @param limit 返回数量
+     * @return 按热度降序排列的视频ID
+     */
+    @GetMapping("/prefetch/top")
+    public ResponseEntity<List<String>> getTopVideos(
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        return ResponseEntity.ok(prefetchService.getTopVideos(limit));
+    }
+    
+    /**
+     * 用视频ID列表预热缓存
+     * 
+     * @param videoIds YouTube视频ID列表
+     * @return 实际加入预热集合的数量
+     */
+    @PostMapping("/prefetch/seed")
+    public ResponseEntity<Map<String, Integer>> seedPrefetch(@RequestBody List<String> videoIds) {
+        log.info("接收到预热请求: {} 个视频", videoIds.size());
+        return ResponseEntity.ok(Map.of("accepted", prefetchService.seed(videoIds)));
+    }
+    
+    /**
+     * 获取YouTube API配额消耗和限流状态
+     * 
+     * @return 配额指标
+     */
+    @GetMapping("/youtube/quota")
+    public ResponseEntity<Map<String, Object>> getYouTubeQuota() {
+        return ResponseEntity.ok(youTubeApiClient.getQuotaMetrics());
+    }
+    
+    /**
+     * 获取转换队列状态和按任务时长分类的排队等待时间直方图
+     * 
+     * @return 调度统计
+     */
+    @GetMapping("/conversion/queue")
+    public ResponseEntity<Map<String, Object>> getConversionQueue() {
+        return ResponseEntity.ok(conversionScheduler.getStats());
+    }
+    
+    /**
+     * 获取转换任务队列中各状态的任务数量
+     * 
+     * @return 任务统计
+     */
+    @GetMapping("/jobs/stats")
+    public ResponseEntity<Map<String, Object>> getJobStats() {
+        return ResponseEntity.ok(conversionJobQueue.getStats());
+    }
+    
+    /**
+     * 获取I/O缓冲池指标，waits或fallbacks持续增长说明缓冲区数量不足
+     * 
+     * @return 缓冲池统计
+     */
+    @GetMapping("/io/buffers")
+    public ResponseEntity<Map<String, Object>> getBufferPoolStats() {
+        return ResponseEntity.ok(bufferPool.getStats());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ezmp3.controller;
+
+import com.ezmp3.dto.Mp3ConversionResponseDto;
+import com.ezmp3.service.Mp3ConversionService;
+import com.ezmp3.service.impl.PeerRemoteResultStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 集群节点间内部接口控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/internal")
+@RequiredArgsConstructor
+public class InternalController {
+    
+    private final Mp3ConversionService mp3ConversionService;
+    
+    /**
+     * 由归属节点获取或转换MP3，供其他节点在本地未命中时调用
+     * 
+     * @param videoId YouTube视频ID
+     * @param bitrate 比特率
+     * @param forwardedBy 发起转发的节点
+     * @param clientId 原始请求的客户端标识
+     * @return MP3文件
+     */
+    @GetMapping("/mp3/{videoId}")
+    public ResponseEntity<?> getMp3(
+            @PathVariable String videoId,
+            @RequestParam(required = false, defaultValue = "128") String bitrate,
+            @RequestHeader(PeerRemoteResultStore.FORWARDED_HEADER) String forwardedBy,
+            @RequestHeader(value = PeerRemoteResultStore.CLIENT_ID_HEADER, required = false) String clientId) {
+        
+        log.info("接收到节点转发请求: videoId={}, bitrate={}, from={}, client={}", videoId, bitrate, forwardedBy, clientId);
+        
+        if (!videoId.matches("^[a-zA-Z0-9_-]{11}$")) {
+            return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("无效的视频ID"));
+        }
+        
+        if (!bitrate.matches("^(64|128|192|256|320)$")) {
+            return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("比特率必须是64、128、192、256或320"));
+        }
+        
+        try {
+            Resource mp3Resource = mp3ConversionService.convertLocally(videoId, bitrate,
+                    clientId != null && !clientId.isBlank() ? clientId : "peer:" + forwardedBy);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("audio/mpeg"))
+                    .body(mp3Resource);
+        } catch (Exception e) {
+            log.error("处理节点转发请求时出错", e);
+            return ResponseEntity.internalServerError().body(Mp3ConversionResponseDto.error("转换失败: " + e.getMessage()));
+        }
+    }
+}
@@ -4,21 +4,25 @@ import com.ezmp3.dto.Mp3ConversionRequestDto;
 import com.ezmp3.dto.Mp3ConversionResponseDto;
 import com.ezmp3.dto.VideoAnalysisResponseDto;
 import com.ezmp3.dto.VideoInfoDto;
+import com.ezmp3.model.Mp3ConversionResult;
 import com.ezmp3.service.Mp3ConversionService;
+import com.ezmp3.service.PrefetchService;
 import com.ezmp3.service.VideoAnalysisService;
 import com.ezmp3.service.YouTubeService;
 import com.ezmp3.util.YouTubeUrlUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * MP3转换控制器
@@ -32,6 +36,13 @@ public class Mp3ConverterController {
     private final Mp3ConversionService mp3ConversionService;
     private final YouTubeService youTubeService;
     private final VideoAnalysisService videoAnalysisService;
+    private final PrefetchService prefetchService;
+    
+    /**
+     * 已登记的API密钥，只有这些密钥才作为独立客户端参与公平调度
+     */
+    @Value("${app.api-keys:}")
+    private Set<String> apiKeys;
     
     /**
      * 获取MP3转换下载选项
@@ -56,6 +67,9 @@ public class Mp3ConverterController {
             return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("比特率必须是64、128、192、256或320"));
         }
         
+        // 统计视频热度
+        prefetchService.recordRequest(YouTubeUrlUtil.extractVideoId(url));
+        
         // 创建请求DTO
         Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
         request.setUrl(url);
@@ -72,15 +86,22 @@ public class Mp3ConverterController {
      * 
      * @param url YouTube URL
      * @param bitrate 比特率
+     * @param start 截取开始时间（秒）
+     * @param end 截取结束时间（秒）
+     * @param httpRequest HTTP请求
      * @param response HTTP响应
      */
     @GetMapping("/direct-download")
     public ResponseEntity<?> directDownloadMp3(
             @RequestParam String url,
             @RequestParam(required = false, defaultValue = "128") String bitrate,
+            @RequestParam(required = false) Double start,
+            @RequestParam(required = false) Double end,
+            @RequestParam(required = false) String profile,
+            HttpServletRequest httpRequest,
             HttpServletResponse response) {
         
-        log.info("接收到直接下载请求: url={}, bitrate={}", url, bitrate);
+        log.info("接收到直接下载请求: url={}, bitrate={}, start={}, end={}, profile={}", url, bitrate, start, end, profile);
         
         // 验证URL和比特率
         if (!YouTubeUrlUtil.isValidYouTubeUrl(url)) {
@@ -91,6 +112,15 @@ public class Mp3ConverterController {
             return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("比特率必须是64、128、192、256或320"));
         }
         
+        if ((start != null && start < 0) || (end != null && end <= 0)
+                || (start != null && end != null && end <= start)) {
+            return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("截取时间段无效"));
+        }
+        
+        if (profile != null && !profile.matches("^(best|balanced|fast|speech)$")) {
+            return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("编码档位必须是best、balanced、fast或speech"));
+        }
+        
         try {
             // 提取视频ID和获取视频信息
             String videoId = YouTubeUrlUtil.extractVideoId(url);
@@ -103,16 +133,33 @@ public class Mp3ConverterController {
                 return ResponseEntity.notFound().build();
             }
             
+            // 截取开始时间不能超过视频时长（降级元数据没有时长时交给转换阶段检查）
+            Long duration = videoInfo.getDuration();
+            if (start != null && duration != null && duration > 0 && start >= duration) {
+                return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error("截取开始时间超过视频时长"));
+            }
+            
             // 调用服务下载并转换MP3
-            Resource mp3Resource = mp3ConversionService.downloadAndConvertToMp3(url, bitrate);
+            Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
+            request.setUrl(url);
+            request.setBitrate(bitrate);
+            request.setStart(start);
+            request.setEnd(end);
+            request.setProfile(profile);
+            request.setClientId(resolveClientId(httpRequest));
+            Mp3ConversionResult result = mp3ConversionService.downloadAndConvertToMp3(request);
             
             // 设置响应头
             String fileName = videoInfo.getTitle().replaceAll("[^a-zA-Z0-9\\-_\\.]", "_") + ".mp3";
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType("audio/mpeg"))
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .body(mp3Resource);
+                    .header("X-Encoding-Profile", result.getEncodingProfile().name().toLowerCase())
+                    .body(result.getResource());
             
+        } catch (IllegalArgumentException e) {
+            log.warn("直接下载请求参数无效: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Mp3ConversionResponseDto.error(e.getMessage()));
         } catch (Exception e) {
             log.error("直接下载MP3时出错", e);
             return ResponseEntity.internalServerError().body(Mp3ConversionResponseDto.error("下载失败: " + e.getMessage()));
@@ -141,6 +188,9 @@ public class Mp3ConverterController {
             return ResponseEntity.badRequest().body(VideoAnalysisResponseDto.error("无法提取视频ID"));
         }
         
+        // 统计视频热度
+        prefetchService.recordRequest(videoId);
+        
         try {
             // 获取视频信息
             VideoInfoDto videoInfo = youTubeService.getVideoInfo(videoId);
@@ -166,4 +216,19 @@ public class Mp3ConverterController {
             return ResponseEntity.internalServerError().body(VideoAnalysisResponseDto.error("分析视频时出错: " + e.getMessage()));
         }
     }
+    
+    /**
+     * 获取客户端标识，使用已登记的API密钥，否则使用客户端IP
+     *
+     * 未登记的密钥不被信任，否则客户端每次换一个新密钥就能绕过公平调度。
+     * 负载均衡之后的客户端IP由server.forward-headers-strategy从X-Forwarded-For还原，
+     * 只有来自受信任代理的转发头才会生效，客户端自己伪造的转发头被忽略。
+     */
+    private String resolveClientId(HttpServletRequest httpRequest) {
+        String apiKey = httpRequest.getHeader("X-API-Key");
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + httpRequest.getRemoteAddr();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.ezmp3.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 校验共享密钥的拦截器，保护不对外开放的节点间接口和运维接口
+ *
+ * 未配置密钥时拒绝所有请求，避免接口在漏配时对公网开放。
+ */
+@Slf4j
+public class SharedSecretInterceptor implements HandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Ezmp3-Token";
+
+    private final byte[] secret;
+
+    public SharedSecretInterceptor(String secret) {
+        this.secret = secret == null || secret.isBlank() ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String provided = request.getHeader(TOKEN_HEADER);
+        // 常量时间比较，避免通过响应时间猜测密钥
+        if (secret != null && provided != null
+                && MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8))) {
+            return true;
+        }
+
+        log.warn("拒绝未授权的请求: {} {}, 来源: {}", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        response.sendError(HttpStatus.FORBIDDEN.value());
+        return false;
+    }
+}
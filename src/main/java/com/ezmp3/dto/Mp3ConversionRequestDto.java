@@ -1,5 +1,6 @@
 package com.ezmp3.dto;
 
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
@@ -16,4 +17,15 @@ public class Mp3ConversionRequestDto {
     
     @Pattern(regexp = "^(64|128|192|256|320)$", message = "比特率必须是64、128、192、256或320")
     private String bitrate = "128"; // 默认比特率为128kbps
+    
+    @DecimalMin(value = "0", message = "开始时间不能小于0")
+    private Double start; // 截取开始时间（秒），为空表示从头开始
+    
+    @DecimalMin(value = "0", message = "结束时间不能小于0")
+    private Double end; // 截取结束时间（秒），为空表示到结尾
+    
+    @Pattern(regexp = "^(?i)(best|balanced|fast|speech)$", message = "编码档位必须是best、balanced、fast或speech")
+    private String profile; // 编码档位，为空时根据音频类型和节点负载自动选择
+    
+    private String clientId; // 客户端标识（API密钥或IP），由控制器填充，用于公平调度
 } 
\ No newline at end of file
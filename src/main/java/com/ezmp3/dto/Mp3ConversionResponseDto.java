@@ -16,6 +16,7 @@ public class Mp3ConversionResponseDto {
     private String videoId;
     private String title;
     private String selectedBitrate;
+    private String encodingProfile;
     private Map<String, String> downloadOptions;
     private String errorMessage;
     
@@ -0,0 +1,15 @@
+package com.ezmp3.exception;
+
+/**
+ * 上游服务不可用异常（配额耗尽、熔断或限流时抛出），调用方应改用降级数据
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+    
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+    
+    public UpstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ezmp3.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * MP3缓存索引条目
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry {
+    private String key;
+    private String fileName;
+    private long size;
+    private long lastAccess; // 最后访问时间（毫秒时间戳）
+    private long checksum;   // 文件内容的CRC32校验值
+}
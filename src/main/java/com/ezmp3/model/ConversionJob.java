@@ -0,0 +1,62 @@
+package com.ezmp3.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 转换任务队列中的任务
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversionJob {
+    
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        PENDING,  // 等待执行（包括等待重试）
+        LEASED,   // 已被worker租用，正在执行
+        DONE,     // 执行成功
+        FAILED,   // 重试次数用尽
+        CANCELLED; // 提交方已放弃等待
+        
+        /**
+         * 是否已结束，结束的任务不会再被租用
+         */
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+    
+    private String id;
+    private Status status;
+    
+    // 转换请求
+    private String videoId;
+    private String url;
+    private String bitrate;
+    private String profile;          // 客户端请求的编码档位
+    private Double start;
+    private Double end;
+    private String clientId;
+    private long expectedSeconds;    // 预计处理的音频时长，用于按开销公平调度
+    
+    // 租约与重试
+    private int attempts;            // 已被租用的次数
+    private String leaseOwner;       // 当前持有租约的worker
+    private long leaseExpiresAt;     // 租约过期时间（毫秒时间戳）
+    private long notBefore;          // 重试退避，在此时间之前不会被租用
+    
+    // 执行结果
+    private String resultFile;       // 共享存储中的结果文件路径
+    private String encodingProfile;  // 实际使用的编码档位
+    private long downloadedBytes;    // worker下载源音频的字节数
+    private String error;
+    
+    private long createdAt;
+    private long updatedAt;
+}
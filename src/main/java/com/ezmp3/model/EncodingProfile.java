@@ -0,0 +1,44 @@
+package com.ezmp3.model;
+
+/**
+ * MP3编码档位，按编码开销从高到低排列
+ */
+public enum EncodingProfile {
+    
+    /**
+     * 最佳质量：LAME VBR，按请求比特率选择VBR等级
+     */
+    BEST,
+    
+    /**
+     * 均衡：按请求比特率CBR编码，立体声44.1kHz
+     */
+    BALANCED,
+    
+    /**
+     * 快速：比特率不超过128kbps，采样率降到32kHz以减少编码的采样数
+     */
+    FAST,
+    
+    /**
+     * 语音：单声道22.05kHz，比特率不超过64kbps，适合播客和讲座
+     */
+    SPEECH;
+    
+    /**
+     * 按名称解析编码档位，忽略大小写
+     * 
+     * @param name 档位名称
+     * @return 编码档位，名称为空或无效时返回null
+     */
+    public static EncodingProfile fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ezmp3.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+/**
+ * MP3转换结果
+ */
+@Data
+@AllArgsConstructor
+public class Mp3ConversionResult {
+    private Resource resource;
+    private EncodingProfile encodingProfile; // 实际使用的编码档位
+    private long downloadedBytes;            // 本次从上游或其他节点下载的字节数，命中缓存时为0
+}
@@ -0,0 +1,85 @@
+package com.ezmp3.service;
+
+import com.ezmp3.model.ConversionJob;
+
+import java.util.Map;
+
+/**
+ * 转换任务队列接口
+ *
+ * API节点提交任务，worker节点以租约方式领取任务并定期续约；worker崩溃导致租约过期时
+ * 任务重新变为可领取，执行失败时按退避时间重试，超过最大次数后标记为失败。
+ */
+public interface ConversionJobQueue {
+    
+    /**
+     * 提交任务
+     * 
+     * @param job 转换任务，只需填写转换请求相关字段
+     * @return 任务ID
+     */
+    String submit(ConversionJob job);
+    
+    /**
+     * 领取一个可执行的任务
+     * 
+     * @param workerId worker标识
+     * @param leaseMillis 租约时长（毫秒）
+     * @return 领取到的任务，没有可执行的任务时返回null
+     */
+    ConversionJob lease(String workerId, long leaseMillis);
+    
+    /**
+     * 续约
+     * 
+     * @param jobId 任务ID
+     * @param workerId worker标识
+     * @param leaseMillis 从现在起的租约时长（毫秒）
+     * @return 如果仍持有该任务的租约则返回true，租约已丢失则返回false
+     */
+    boolean heartbeat(String jobId, String workerId, long leaseMillis);
+    
+    /**
+     * 标记任务执行成功
+     * 
+     * @param jobId 任务ID
+     * @param workerId worker标识
+     * @param resultFile 共享存储中的结果文件路径
+     * @param encodingProfile 实际使用的编码档位
+     * @param downloadedBytes 下载源音频的字节数
+     * @return 如果仍持有租约且状态已更新则返回true
+     */
+    boolean complete(String jobId, String workerId, String resultFile, String encodingProfile, long downloadedBytes);
+    
+    /**
+     * 标记任务执行失败，未超过最大次数时按退避时间重新排队
+     * 
+     * @param jobId 任务ID
+     * @param workerId worker标识
+     * @param error 错误信息
+     */
+    void fail(String jobId, String workerId, String error);
+    
+    /**
+     * 取消任务，提交方放弃等待时调用
+     *
+     * 未执行的任务不会再被租用；正在执行的任务失去租约，worker续约和提交结果都会失败，结果被丢弃。
+     *
+     * @param jobId 任务ID
+     * @return 任务被取消时返回true，任务不存在或已结束时返回false
+     */
+    boolean cancel(String jobId);
+    
+    /**
+     * 获取任务当前状态
+     * 
+     * @param jobId 任务ID
+     * @return 任务，不存在或已被清理时返回null
+     */
+    ConversionJob get(String jobId);
+    
+    /**
+     * 获取各状态的任务数量
+     */
+    Map<String, Object> getStats();
+}
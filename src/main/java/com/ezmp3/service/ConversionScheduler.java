@@ -0,0 +1,47 @@
+package com.ezmp3.service;
+
+import java.util.Map;
+
+/**
+ * 转换任务调度器接口，限制同时进行的转换数量并决定排队任务的执行顺序
+ */
+public interface ConversionScheduler {
+    
+    /**
+     * 转换名额，使用完毕后必须关闭以释放
+     */
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+    
+    /**
+     * 申请一个转换名额，必要时排队等待
+     * 
+     * @param clientId 客户端标识（API密钥或IP）
+     * @param expectedSeconds 预计处理的音频时长（秒），用于估算任务开销
+     * @return 转换名额
+     * @throws InterruptedException 如果等待时被中断
+     */
+    Permit acquire(String clientId, long expectedSeconds) throws InterruptedException;
+    
+    /**
+     * 当前排队中的任务数
+     */
+    int getQueueLength();
+    
+    /**
+     * 最大并发转换数
+     */
+    int getMaxConcurrent();
+    
+    /**
+     * 当前正在执行的任务数
+     */
+    int getActiveCount();
+    
+    /**
+     * 获取调度统计，包括按任务时长分类的排队等待时间直方图
+     */
+    Map<String, Object> getStats();
+}
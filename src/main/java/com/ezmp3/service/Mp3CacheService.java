@@ -0,0 +1,58 @@
+package com.ezmp3.service;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * MP3文件缓存服务接口
+ */
+public interface Mp3CacheService {
+    
+    /**
+     * 查找缓存的MP3文件，命中时更新最后访问时间
+     * 
+     * @param key 缓存键
+     * @return 缓存文件，未命中则返回null
+     */
+    File lookup(String key);
+    
+    /**
+     * 检查缓存中是否存在条目，不更新访问时间
+     * 
+     * @param key 缓存键
+     * @return 如果存在则返回true
+     */
+    boolean contains(String key);
+    
+    /**
+     * 将转换好的MP3文件放入缓存
+     * 
+     * @param key 缓存键
+     * @param source 源文件，放入后会被移动到缓存目录
+     * @return 缓存目录中的文件
+     * @throws IOException 如果移动文件或写入索引失败
+     */
+    File put(String key, File source) throws IOException;
+    
+    /**
+     * 为已缓存的条目增加一个别名，两个键共享同一个文件
+     * 
+     * @param key 新的缓存键
+     * @param targetKey 已存在的缓存键
+     * @return 共享的缓存文件，targetKey未命中则返回null
+     * @throws IOException 如果写入索引失败
+     */
+    File alias(String key, String targetKey) throws IOException;
+    
+    /**
+     * 从缓存中移除条目，没有其他键引用对应文件时删除文件
+     * 
+     * @param key 缓存键
+     */
+    void remove(String key);
+    
+    /**
+     * 压缩索引日志并按容量上限淘汰最久未访问的条目
+     */
+    void compact();
+}
@@ -2,6 +2,7 @@ package com.ezmp3.service;
 
 import com.ezmp3.dto.Mp3ConversionRequestDto;
 import com.ezmp3.dto.Mp3ConversionResponseDto;
+import com.ezmp3.model.Mp3ConversionResult;
 import org.springframework.core.io.Resource;
 
 /**
@@ -26,4 +27,42 @@ public interface Mp3ConversionService {
      * @throws Exception 如果下载或转换过程中出错
      */
     Resource downloadAndConvertToMp3(String url, String bitrate) throws Exception;
+    
+    /**
+     * 下载并转换YouTube视频为MP3，可只截取其中一段
+     * 
+     * @param request 包含YouTube URL、比特率、编码档位和可选截取时间段的请求对象
+     * @return 转换结果，包含MP3文件资源和实际使用的编码档位
+     * @throws Exception 如果下载或转换过程中出错
+     */
+    Mp3ConversionResult downloadAndConvertToMp3(Mp3ConversionRequestDto request) throws Exception;
+    
+    /**
+     * 在本节点获取或转换MP3，不查询远程结果存储
+     * 
+     * @param videoId YouTube视频ID
+     * @param bitrate MP3比特率
+     * @param clientId 原始请求的客户端标识
+     * @return 包含MP3文件的资源
+     * @throws Exception 如果下载或转换过程中出错
+     */
+    Resource convertLocally(String videoId, String bitrate, String clientId) throws Exception;
+    
+    /**
+     * 在本节点转换MP3，不查询远程结果存储也不提交到任务队列，供worker执行任务时使用
+     * 
+     * @param request 转换请求
+     * @return 转换结果
+     * @throws Exception 如果下载或转换过程中出错
+     */
+    Mp3ConversionResult convertLocally(Mp3ConversionRequestDto request) throws Exception;
+    
+    /**
+     * 检查本节点是否已缓存指定视频和比特率的MP3
+     * 
+     * @param videoId YouTube视频ID
+     * @param bitrate MP3比特率
+     * @return 如果已缓存则返回true
+     */
+    boolean isCached(String videoId, String bitrate);
 } 
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.ezmp3.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 热门视频预取服务接口
+ */
+public interface PrefetchService {
+    
+    /**
+     * 记录一次视频请求，用于统计热度
+     * 
+     * @param videoId YouTube视频ID
+     */
+    void recordRequest(String videoId);
+    
+    /**
+     * 获取当前最热门的视频
+     * 
+     * @param limit 返回数量
+     * @return 按热度降序排列的视频ID
+     */
+    List<String> getTopVideos(int limit);
+    
+    /**
+     * 将指定视频加入预热集合，在下一轮预取时优先转换
+     * 
+     * @param videoIds YouTube视频ID列表
+     * @return 实际加入的有效视频ID数量
+     */
+    int seed(Collection<String> videoIds);
+}
@@ -0,0 +1,29 @@
+package com.ezmp3.service;
+
+import java.io.File;
+
+/**
+ * 远程转换结果存储接口，用于多个后端实例之间共享转换好的MP3
+ */
+public interface RemoteResultStore {
+    
+    /**
+     * 从远程存储获取转换结果
+     * 
+     * @param videoId YouTube视频ID
+     * @param bitrate MP3比特率
+     * @param clientId 发起请求的客户端标识，归属节点按它进行公平调度
+     * @param target 结果写入的本地文件
+     * @return 如果获取成功则返回true，否则返回false
+     */
+    boolean fetch(String videoId, String bitrate, String clientId, File target);
+    
+    /**
+     * 将本地转换结果发布到远程存储
+     * 
+     * @param videoId YouTube视频ID
+     * @param bitrate MP3比特率
+     * @param file 本地MP3文件
+     */
+    void publish(String videoId, String bitrate, File file);
+}
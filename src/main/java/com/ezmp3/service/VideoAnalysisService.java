@@ -14,4 +14,12 @@ public interface VideoAnalysisService {
      * @return 分析结果的Markdown文本
      */
     String analyzeVideoContent(VideoInfoDto videoInfo);
+    
+    /**
+     * 根据视频标签判断音频类型
+     * 
+     * @param videoInfo 视频信息
+     * @return 音频类型（音乐、播客、讲座/教程、一般内容），无法判断时返回null
+     */
+    String determineAudioType(VideoInfoDto videoInfo);
 } 
\ No newline at end of file
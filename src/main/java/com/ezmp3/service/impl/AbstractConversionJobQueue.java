@@ -0,0 +1,301 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.ConversionJob;
+import com.ezmp3.service.ConversionJobQueue;
+import com.ezmp3.util.FairSharePolicy;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 转换任务队列的公共实现
+ *
+ * 租约、续约、重试和过期清理的状态转换都在这里完成，子类只负责任务的存储和加锁，
+ * 所有状态转换都在锁内按"读取-修改-保存"执行。
+ *
+ * worker租用任务时与FairConversionScheduler共用FairSharePolicy排序，而不是先进先出：
+ * 每个客户端的开销为 该客户端正在执行的任务开销 + 最早的待执行任务开销（均按权重折算），
+ * 再按已等待时间成比例老化，因此短任务和占用少的客户端先被租用；
+ * 等待超过max-wait的任务按提交先后优先租用，长任务不会被持续到达的短任务无限推迟。
+ */
+@Slf4j
+public abstract class AbstractConversionJobQueue implements ConversionJobQueue {
+    
+    @Value("${app.job-queue.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${app.job-queue.retry-backoff:5000}")
+    private long retryBackoff;
+    
+    @Value("${app.job-queue.retention:3600000}")
+    private long retention;
+    
+    @Value("${app.scheduler.aging-rate:0.1}")
+    private double agingRate;
+    
+    @Value("${app.scheduler.max-wait:60000}")
+    private long maxWait;
+    
+    @Value("${app.scheduler.client-weights:}")
+    private String clientWeightsConfig;
+    
+    private FairSharePolicy policy;
+    
+    @PostConstruct
+    public void initPolicy() {
+        policy = new FairSharePolicy(FairSharePolicy.parseClientWeights(clientWeightsConfig), agingRate, maxWait);
+    }
+    
+    /**
+     * 在锁内执行的存储操作
+     */
+    @FunctionalInterface
+    protected interface LockedOperation<T> {
+        T run() throws IOException;
+    }
+    
+    /**
+     * 持有队列锁执行操作
+     */
+    protected abstract <T> T locked(LockedOperation<T> operation);
+    
+    /**
+     * 读取全部任务，返回的对象可以直接修改，修改后需调用save
+     */
+    protected abstract Collection<ConversionJob> loadAll() throws IOException;
+    
+    /**
+     * 只读取未结束（PENDING、LEASED）的任务，租用时调用，不应扫描保留期内的已结束任务
+     */
+    protected abstract Collection<ConversionJob> loadActive() throws IOException;
+    
+    /**
+     * 读取单个任务，不存在时返回null
+     */
+    protected abstract ConversionJob load(String jobId) throws IOException;
+    
+    protected abstract void save(ConversionJob job) throws IOException;
+    
+    protected abstract void delete(String jobId) throws IOException;
+    
+    @Override
+    public String submit(ConversionJob job) {
+        long now = System.currentTimeMillis();
+        ConversionJob pending = job.toBuilder()
+                .id(UUID.randomUUID().toString())
+                .status(ConversionJob.Status.PENDING)
+                .attempts(0)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        locked(() -> {
+            save(pending);
+            return null;
+        });
+        log.debug("转换任务已提交: id={}, videoId={}", pending.getId(), pending.getVideoId());
+        return pending.getId();
+    }
+    
+    @Override
+    public ConversionJob lease(String workerId, long leaseMillis) {
+        return locked(() -> {
+            long now = System.currentTimeMillis();
+            // 每个客户端正在执行的任务开销，以及最早的可执行任务
+            Map<String, Double> inFlightCost = new HashMap<>();
+            Map<String, ConversionJob> heads = new HashMap<>();
+            for (ConversionJob job : loadActive()) {
+                if (job.getStatus() == ConversionJob.Status.LEASED && job.getLeaseExpiresAt() < now) {
+                    // 持有租约的worker已失联
+                    log.warn("转换任务租约过期: id={}, worker={}", job.getId(), job.getLeaseOwner());
+                    job.setUpdatedAt(now);
+                    if (job.getAttempts() >= maxAttempts) {
+                        job.setStatus(ConversionJob.Status.FAILED);
+                        job.setError("租约过期且重试次数已用尽");
+                        save(job);
+                        continue;
+                    }
+                    job.setStatus(ConversionJob.Status.PENDING);
+                    job.setLeaseOwner(null);
+                    job.setNotBefore(now);
+                    save(job);
+                }
+                
+                String client = clientOf(job);
+                if (job.getStatus() == ConversionJob.Status.LEASED) {
+                    inFlightCost.merge(client, cost(job), Double::sum);
+                } else if (job.getStatus() == ConversionJob.Status.PENDING && job.getNotBefore() <= now) {
+                    heads.merge(client, job, (a, b) -> a.getCreatedAt() <= b.getCreatedAt() ? a : b);
+                }
+            }
+            
+            ConversionJob next = policy.select(heads.values(),
+                    head -> inFlightCost.getOrDefault(clientOf(head), 0.0) + cost(head),
+                    head -> now - head.getCreatedAt());
+            if (next == null) {
+                return null;
+            }
+            next.setStatus(ConversionJob.Status.LEASED);
+            next.setLeaseOwner(workerId);
+            next.setLeaseExpiresAt(now + leaseMillis);
+            next.setAttempts(next.getAttempts() + 1);
+            next.setUpdatedAt(now);
+            save(next);
+            return next;
+        });
+    }
+    
+    @Override
+    public boolean heartbeat(String jobId, String workerId, long leaseMillis) {
+        return locked(() -> {
+            ConversionJob job = loadLeased(jobId, workerId);
+            if (job == null) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            job.setLeaseExpiresAt(now + leaseMillis);
+            job.setUpdatedAt(now);
+            save(job);
+            return true;
+        });
+    }
+    
+    @Override
+    public boolean complete(String jobId, String workerId, String resultFile, String encodingProfile, long downloadedBytes) {
+        return locked(() -> {
+            ConversionJob job = loadLeased(jobId, workerId);
+            if (job == null) {
+                log.warn("转换任务租约已丢失，丢弃结果: id={}, worker={}", jobId, workerId);
+                return false;
+            }
+            job.setStatus(ConversionJob.Status.DONE);
+            job.setResultFile(resultFile);
+            job.setEncodingProfile(encodingProfile);
+            job.setDownloadedBytes(downloadedBytes);
+            job.setLeaseOwner(null);
+            job.setUpdatedAt(System.currentTimeMillis());
+            save(job);
+            return true;
+        });
+    }
+    
+    @Override
+    public void fail(String jobId, String workerId, String error) {
+        locked(() -> {
+            ConversionJob job = loadLeased(jobId, workerId);
+            if (job == null) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            job.setError(error);
+            job.setLeaseOwner(null);
+            job.setUpdatedAt(now);
+            if (job.getAttempts() >= maxAttempts) {
+                job.setStatus(ConversionJob.Status.FAILED);
+                log.warn("转换任务失败，重试次数已用尽: id={}, 原因: {}", jobId, error);
+            } else {
+                // 指数退避
+                long backoff = retryBackoff << Math.min(job.getAttempts() - 1, 10);
+                job.setStatus(ConversionJob.Status.PENDING);
+                job.setNotBefore(now + backoff);
+                log.info("转换任务将在 {} ms 后重试: id={}, 第{}次失败, 原因: {}", backoff, jobId, job.getAttempts(), error);
+            }
+            save(job);
+            return null;
+        });
+    }
+    
+    @Override
+    public boolean cancel(String jobId) {
+        return locked(() -> {
+            ConversionJob job = load(jobId);
+            if (job == null || job.getStatus().isFinished()) {
+                return false;
+            }
+            log.info("转换任务已取消: id={}, 状态={}, worker={}", jobId, job.getStatus(), job.getLeaseOwner());
+            job.setStatus(ConversionJob.Status.CANCELLED);
+            job.setError("提交方已放弃等待");
+            job.setLeaseOwner(null);
+            job.setUpdatedAt(System.currentTimeMillis());
+            save(job);
+            return true;
+        });
+    }
+    
+    @Override
+    public ConversionJob get(String jobId) {
+        return locked(() -> load(jobId));
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<ConversionJob.Status, Integer> counts = new EnumMap<>(ConversionJob.Status.class);
+        locked(() -> {
+            for (ConversionJob job : loadAll()) {
+                counts.merge(job.getStatus(), 1, Integer::sum);
+            }
+            return null;
+        });
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ConversionJob.Status status : ConversionJob.Status.values()) {
+            stats.put(status.name().toLowerCase(), counts.getOrDefault(status, 0));
+        }
+        return stats;
+    }
+    
+    /**
+     * 清理超过保留时长的已结束任务，以及未被取走的结果文件
+     */
+    @Scheduled(fixedDelayString = "${app.job-queue.purge-interval:600000}")
+    public void purge() {
+        int purged = locked(() -> {
+            long expireBefore = System.currentTimeMillis() - retention;
+            int count = 0;
+            for (ConversionJob job : loadAll()) {
+                if (job.getStatus().isFinished() && job.getUpdatedAt() < expireBefore) {
+                    if (job.getResultFile() != null) {
+                        new File(job.getResultFile()).delete();
+                    }
+                    delete(job.getId());
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (purged > 0) {
+            log.info("已清理 {} 个过期的转换任务", purged);
+        }
+    }
+    
+    private static String clientOf(ConversionJob job) {
+        return job.getClientId() != null ? job.getClientId() : "anonymous";
+    }
+    
+    /**
+     * 任务开销：预计音频时长除以客户端权重
+     */
+    private double cost(ConversionJob job) {
+        return policy.cost(clientOf(job), job.getExpectedSeconds());
+    }
+    
+    /**
+     * 读取仍由指定worker持有租约的任务
+     */
+    private ConversionJob loadLeased(String jobId, String workerId) throws IOException {
+        ConversionJob job = load(jobId);
+        if (job == null || job.getStatus() != ConversionJob.Status.LEASED || !workerId.equals(job.getLeaseOwner())) {
+            return null;
+        }
+        return job;
+    }
+}
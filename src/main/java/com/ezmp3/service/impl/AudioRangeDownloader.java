@@ -0,0 +1,175 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.util.DirectBufferPool;
+import com.ezmp3.util.Mp4SegmentIndex;
+import com.github.kiulian.downloader.model.videos.formats.AudioFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 下载音频文件，完整下载或按时间段下载一部分
+ *
+ * 对带sidx的m4a音频，根据分段索引只下载初始化段和覆盖所需时间段的分段，
+ * 拼接成一个可以直接交给ffmpeg的分片MP4文件。
+ *
+ * 响应体从连接读入缓冲池借用的直接缓冲区，再写入FileChannel，不为每块数据分配缓冲区。
+ * 这里使用HttpURLConnection而不是java.net.http.HttpClient：后者每收到一块数据都会分配新的堆缓冲区，
+ * 下载8MB音频约产生9MB的堆分配。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AudioRangeDownloader {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0 Safari/537.36";
+
+    /**
+     * 截取下载的结果
+     *
+     * @param file 下载的音频片段文件
+     * @param offsetSeconds 请求的开始时间相对于片段开头的偏移
+     */
+    public record ClipDownload(File file, double offsetSeconds) {
+    }
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 5 * 60_000;
+
+    private final DirectBufferPool bufferPool;
+
+    /**
+     * 完整下载音频
+     *
+     * @param format 音频格式
+     * @param target 写入的文件
+     * @return 下载的字节数
+     * @throws IOException 如果下载失败，调用方可以改用YoutubeDownloader下载
+     */
+    public long downloadFull(AudioFormat format, File target) throws IOException {
+        return download(format.url(), target);
+    }
+
+    long download(String url, File target) throws IOException {
+        try (InputStream in = open(url, null, 200)) {
+            return write(in, target, ByteBuffer.allocate(0));
+        }
+    }
+
+    /**
+     * 下载覆盖指定时间段的音频片段
+     *
+     * @param format 音频格式，需为m4a
+     * @param target 片段写入的文件
+     * @param startSeconds 开始时间
+     * @param endSeconds 结束时间
+     * @return 下载结果，格式不支持按段下载时返回null，由调用方改为完整下载
+     * @throws IOException 如果上游不支持Range或分段索引损坏，调用方同样改为完整下载
+     */
+    public ClipDownload downloadClip(AudioFormat format, File target, double startSeconds, double endSeconds) throws IOException {
+        String url = format.url();
+        Mp4SegmentIndex index = Mp4SegmentIndex.parse((offset, length) -> readRange(url, offset, length));
+        if (index == null) {
+            log.info("音频格式没有sidx分段索引，改为完整下载: itag={}", format.itag());
+            return null;
+        }
+
+        List<Mp4SegmentIndex.Segment> segments = index.segmentsCovering(startSeconds, endSeconds);
+        if (segments.isEmpty()) {
+            log.info("分段索引中没有覆盖 {}s-{}s 的分段，改为完整下载: itag={}", startSeconds, endSeconds, format.itag());
+            return null;
+        }
+
+        Mp4SegmentIndex.Segment first = segments.get(0);
+        Mp4SegmentIndex.Segment last = segments.get(segments.size() - 1);
+        long rangeStart = first.offset();
+        long rangeEnd = last.offset() + last.size() - 1;
+        log.info("按段下载音频: {} 个分段, 字节 {}-{}, 时间 {}s-{}s",
+                segments.size(), rangeStart, rangeEnd, first.startSeconds(), last.startSeconds() + last.durationSeconds());
+
+        // 写入初始化段（解析sidx时已读取），再追加所需的分段
+        byte[] init = index.getInitSegment();
+        try (InputStream in = openRange(url, rangeStart, rangeEnd)) {
+            write(in, target, ByteBuffer.wrap(init));
+        }
+
+        Mp4SegmentIndex.rebaseDecodeTimes(target.toPath(), init.length);
+        return new ClipDownload(target, Math.max(0, startSeconds - first.startSeconds()));
+    }
+
+    /**
+     * 用借用的缓冲区把响应体写入文件
+     *
+     * @param header 写在响应体之前的数据，与第一块响应数据用一次聚集写入
+     * @return 写入的字节数
+     */
+    private long write(InputStream body, File target, ByteBuffer header) throws IOException {
+        long written = 0;
+        ByteBuffer buffer = bufferPool.acquire();
+        try (FileChannel channel = FileChannel.open(target.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(body)) {
+            ByteBuffer[] chunks = {header, buffer};
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                while (header.hasRemaining() || buffer.hasRemaining()) {
+                    written += channel.write(chunks);
+                }
+                buffer.clear();
+            }
+            while (header.hasRemaining()) {
+                written += channel.write(header);
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return written;
+    }
+
+    private byte[] readRange(String url, long offset, int length) throws IOException {
+        try (InputStream in = openRange(url, offset, offset + length - 1)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private InputStream openRange(String url, long from, long to) throws IOException {
+        // 服务器忽略Range时会返回整个文件，这里不接受
+        return open(url, "bytes=" + from + "-" + to, 206);
+    }
+
+    /**
+     * 发起GET请求，返回响应体
+     *
+     * @param range Range请求头，为空时下载整个文件
+     * @param expectedStatus 期望的状态码，其他状态码视为失败
+     */
+    private InputStream open(String url, String range, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setInstanceFollowRedirects(true);
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        int status = connection.getResponseCode();
+        if (status != expectedStatus) {
+            connection.disconnect();
+            throw new IOException((range != null ? "按范围下载失败" : "下载失败") + "，状态码: " + status);
+        }
+        return connection.getInputStream();
+    }
+}
@@ -0,0 +1,173 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.dto.Mp3ConversionRequestDto;
+import com.ezmp3.model.ConversionJob;
+import com.ezmp3.model.Mp3ConversionResult;
+import com.ezmp3.service.ConversionJobQueue;
+import com.ezmp3.service.Mp3ConversionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换worker，从任务队列领取任务，在本节点完成转换后把结果写入共享存储
+ *
+ * 使用worker配置（--spring.profiles.active=worker）启动同一个jar即可作为独立的转换节点运行；
+ * 使用进程内队列时也可以在API节点上直接启用。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.job-queue.worker.enabled", havingValue = "true")
+public class ConversionWorker {
+    
+    private final ConversionJobQueue conversionJobQueue;
+    
+    private final Mp3ConversionService mp3ConversionService;
+    
+    @Value("${app.job-queue.worker.threads:0}")
+    private int threads;
+    
+    @Value("${app.job-queue.lease-millis:60000}")
+    private long leaseMillis;
+    
+    @Value("${app.job-queue.poll-interval:500}")
+    private long pollInterval;
+    
+    @Value("${app.job-queue.result-directory:${app.download.directory:${java.io.tmpdir}/ezmp3-downloads}/job-results}")
+    private String resultDirectory;
+    
+    private final List<Thread> workerThreads = new ArrayList<>();
+    
+    private ScheduledExecutorService heartbeatExecutor;
+    
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(Paths.get(resultDirectory));
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        String nodeId = nodeId();
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            String workerId = nodeId + "-" + i;
+            // 非守护线程：worker节点没有Web服务器，靠这些线程保持进程运行
+            Thread thread = new Thread(() -> runLoop(workerId), "conversion-worker-" + i);
+            thread.start();
+            workerThreads.add(thread);
+        }
+        log.info("转换worker已启动: 节点={}, 线程数={}, 租约={} ms", nodeId, threads, leaseMillis);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        // 中断正在执行的任务，未完成的任务会在租约过期后由其他worker重试
+        workerThreads.forEach(Thread::interrupt);
+        heartbeatExecutor.shutdownNow();
+    }
+    
+    private void runLoop(String workerId) {
+        while (running) {
+            try {
+                ConversionJob job = conversionJobQueue.lease(workerId, leaseMillis);
+                if (job == null) {
+                    Thread.sleep(pollInterval);
+                    continue;
+                }
+                process(job, workerId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("转换worker循环出错: {}", workerId, e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 执行任务，执行期间按租约的三分之一定期续约
+     */
+    private void process(ConversionJob job, String workerId) {
+        log.info("开始执行转换任务: id={}, videoId={}, 第{}次尝试", job.getId(), job.getVideoId(), job.getAttempts());
+        long interval = Math.max(1000, leaseMillis / 3);
+        ScheduledFuture<?> heartbeat = heartbeatExecutor.scheduleAtFixedRate(() -> {
+            if (!conversionJobQueue.heartbeat(job.getId(), workerId, leaseMillis)) {
+                log.warn("转换任务租约已丢失: id={}", job.getId());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        
+        try {
+            Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
+            request.setUrl(job.getUrl());
+            request.setBitrate(job.getBitrate());
+            request.setProfile(job.getProfile());
+            request.setStart(job.getStart());
+            request.setEnd(job.getEnd());
+            request.setClientId(job.getClientId());
+            Mp3ConversionResult result = mp3ConversionService.convertLocally(request);
+            
+            // 复制到共享结果目录，先写临时文件再原子重命名
+            Path target = Paths.get(resultDirectory, job.getId() + ".mp3");
+            Path temp = target.resolveSibling(job.getId() + ".mp3.tmp");
+            Files.copy(result.getResource().getFile().toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+            heartbeat.cancel(false);
+            if (!conversionJobQueue.complete(job.getId(), workerId, target.toAbsolutePath().toString(),
+                    result.getEncodingProfile().name(), result.getDownloadedBytes())) {
+                Files.deleteIfExists(target);
+            } else {
+                log.info("转换任务完成: id={}", job.getId());
+            }
+        } catch (Exception e) {
+            heartbeat.cancel(false);
+            log.error("转换任务执行失败: id={}", job.getId(), e);
+            conversionJobQueue.fail(job.getId(), workerId, e.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private static String nodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "worker";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.EncodingProfile;
+import com.ezmp3.service.ConversionScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 根据节点负载选择编码档位
+ *
+ * 负载取转换队列压力（排队任务数 / 最大并发数）和CPU使用率中的较大值，
+ * 超过阈值时自动降到开销更低的档位，用少量音质换取吞吐量。
+ * 语音类内容的SPEECH档位（64kbps单声道）同样只在负载升高或客户端明确请求时使用，
+ * 空闲时不会替客户端降低所选比特率。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EncodingProfileSelector {
+    
+    private final ConversionScheduler conversionScheduler;
+    
+    @Value("${app.encoding.default-profile:balanced}")
+    private String defaultProfile;
+    
+    @Value("${app.encoding.degrade-load:0.6}")
+    private double degradeLoad;
+    
+    @Value("${app.encoding.fast-load:0.85}")
+    private double fastLoad;
+    
+    /**
+     * 选择编码档位
+     * 
+     * @param requested 客户端请求的档位，为空时按音频类型和默认档位选择
+     * @param audioType 视频分析得到的音频类型
+     * @return 实际使用的编码档位
+     */
+    public EncodingProfile select(EncodingProfile requested, String audioType) {
+        if (requested == EncodingProfile.SPEECH || requested == EncodingProfile.FAST) {
+            return requested;
+        }
+        
+        double load = currentLoad();
+        boolean speech = "播客".equals(audioType) || "讲座/教程".equals(audioType);
+        if (requested == null && speech && load >= degradeLoad) {
+            log.debug("节点负载 {} 较高，语音类内容使用 SPEECH 档位", String.format("%.2f", load));
+            return EncodingProfile.SPEECH;
+        }
+        
+        EncodingProfile profile = requested != null ? requested : EncodingProfile.fromName(defaultProfile);
+        if (profile == null) {
+            profile = EncodingProfile.BALANCED;
+        }
+        if (profile == EncodingProfile.SPEECH || profile == EncodingProfile.FAST) {
+            return profile;
+        }
+        
+        if (load >= fastLoad) {
+            log.debug("节点负载 {} 过高，编码档位 {} 降为 FAST", String.format("%.2f", load), profile);
+            return EncodingProfile.FAST;
+        }
+        if (load >= degradeLoad && profile == EncodingProfile.BEST) {
+            return EncodingProfile.BALANCED;
+        }
+        return profile;
+    }
+    
+    /**
+     * 当前负载，0表示空闲，1及以上表示饱和
+     */
+    public double currentLoad() {
+        double queuePressure = (double) conversionScheduler.getQueueLength()
+                / Math.max(1, conversionScheduler.getMaxConcurrent());
+        double cpuLoad = 0;
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean osBean) {
+            cpuLoad = Math.max(0, osBean.getCpuLoad());
+        }
+        return Math.max(queuePressure, cpuLoad);
+    }
+}
@@ -0,0 +1,199 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.service.ConversionScheduler;
+import com.ezmp3.util.FairSharePolicy;
+import com.ezmp3.util.WaitTimeHistogram;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按任务时长加权的公平转换调度器
+ *
+ * 每个任务按预计音频时长计算开销，并按客户端做加权公平排队：任务的虚拟完成时间为
+ * max(全局虚拟时间, 该客户端上一个任务的虚拟完成时间) + 开销 / 权重。
+ * 空出名额时按FairSharePolicy选出相对全局虚拟时间完成最早的任务，因此短任务和排队少的客户端会先执行；
+ * 老化按等待时间成比例地缩小排序值，等待超过max-wait的任务按先后优先执行，保证长任务不会被无限推迟。
+ * 排队超时按预计时长放宽，长任务本身转换时间更长，也允许排队更久。
+ */
+@Slf4j
+@Service
+public class FairConversionScheduler implements ConversionScheduler {
+
+    private static final long SHORT_JOB_SECONDS = 10 * 60;
+    private static final long MEDIUM_JOB_SECONDS = 60 * 60;
+
+    @Value("${app.scheduler.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${app.scheduler.aging-rate:0.1}")
+    private double agingRate;
+
+    @Value("${app.scheduler.max-wait:60000}")
+    private long maxWait;
+
+    @Value("${app.scheduler.queue-timeout:${app.conversion.timeout:300000}}")
+    private long queueTimeout;
+
+    @Value("${app.scheduler.queue-wait-ratio:0.5}")
+    private double queueWaitRatio;
+
+    @Value("${app.scheduler.client-weights:}")
+    private String clientWeightsConfig;
+
+    private FairSharePolicy policy;
+
+    private final Map<String, Double> clientLastFinish = new HashMap<>();
+
+    private final List<Job> waiting = new ArrayList<>();
+
+    private final Map<String, WaitTimeHistogram> histograms = new LinkedHashMap<>();
+
+    private double virtualTime;
+
+    private int active;
+
+    private static class Job {
+        final String clientId;
+        final String costClass;
+        final double startTag;
+        final double finishTag;
+        final long enqueuedAt = System.currentTimeMillis();
+        boolean granted;
+
+        Job(String clientId, String costClass, double startTag, double finishTag) {
+            this.clientId = clientId;
+            this.costClass = costClass;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (maxConcurrent <= 0) {
+            maxConcurrent = Runtime.getRuntime().availableProcessors();
+        }
+        policy = new FairSharePolicy(FairSharePolicy.parseClientWeights(clientWeightsConfig), agingRate, maxWait);
+        histograms.put("short", new WaitTimeHistogram());
+        histograms.put("medium", new WaitTimeHistogram());
+        histograms.put("long", new WaitTimeHistogram());
+        log.info("转换调度器已初始化: 最大并发={}, 老化速率={}, 饥饿阈值={} ms", maxConcurrent, agingRate, maxWait);
+    }
+
+    @Override
+    public Permit acquire(String clientId, long expectedSeconds) throws InterruptedException {
+        String costClass = expectedSeconds <= SHORT_JOB_SECONDS ? "short"
+                : expectedSeconds <= MEDIUM_JOB_SECONDS ? "medium" : "long";
+        Job job;
+
+        synchronized (this) {
+            double startTag = Math.max(virtualTime, clientLastFinish.getOrDefault(clientId, 0.0));
+            double finishTag = startTag + policy.cost(clientId, expectedSeconds);
+            clientLastFinish.put(clientId, finishTag);
+
+            job = new Job(clientId, costClass, startTag, finishTag);
+            waiting.add(job);
+            dispatch();
+
+            long deadline = System.currentTimeMillis() + queueTimeout(expectedSeconds);
+            try {
+                while (!job.granted) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        waiting.remove(job);
+                        throw new IllegalStateException("转换任务排队超时");
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (job.granted) {
+                    release();
+                } else {
+                    waiting.remove(job);
+                }
+                throw e;
+            }
+        }
+
+        long waited = System.currentTimeMillis() - job.enqueuedAt;
+        histograms.get(costClass).record(waited);
+        if (waited > 1000) {
+            log.debug("转换任务排队 {} ms: client={}, 预计时长={}s", waited, clientId, expectedSeconds);
+        }
+        return this::release;
+    }
+
+    @Override
+    public synchronized int getQueueLength() {
+        return waiting.size();
+    }
+
+    @Override
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    @Override
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("maxConcurrent", maxConcurrent);
+            stats.put("active", active);
+            stats.put("queued", waiting.size());
+        }
+        Map<String, Object> waitTimes = new LinkedHashMap<>();
+        histograms.forEach((costClass, histogram) -> waitTimes.put(costClass, histogram.snapshot()));
+        stats.put("waitTimeMillis", waitTimes);
+        return stats;
+    }
+
+    /**
+     * 排队超时：基础超时加上按预计时长放宽的部分
+     */
+    long queueTimeout(long expectedSeconds) {
+        return queueTimeout + (long) (Math.max(0, expectedSeconds) * 1000 * queueWaitRatio);
+    }
+
+    private synchronized void release() {
+        active--;
+        dispatch();
+    }
+
+    /**
+     * 在有空闲名额时按老化后的相对虚拟完成时间选出下一个任务，调用方需持有锁
+     */
+    private void dispatch() {
+        boolean granted = false;
+        while (active < maxConcurrent && !waiting.isEmpty()) {
+            long now = System.currentTimeMillis();
+            Job next = policy.select(waiting, job -> job.finishTag - virtualTime, job -> now - job.enqueuedAt);
+
+            waiting.remove(next);
+            virtualTime = Math.max(virtualTime, next.startTag);
+            next.granted = true;
+            active++;
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+
+        // 清理已经空闲的客户端记录
+        if (clientLastFinish.size() > 10000) {
+            clientLastFinish.values().removeIf(finish -> finish <= virtualTime);
+        }
+    }
+}
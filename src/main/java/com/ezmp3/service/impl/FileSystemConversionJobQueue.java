@@ -0,0 +1,163 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.ConversionJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于文件系统的转换任务队列
+ *
+ * 每个任务保存为一个JSON文件，写入时先写临时文件再原子重命名；
+ * 所有状态转换持有队列目录中lock文件的排他锁，因此同一台机器上的多个进程
+ * （API节点和若干worker节点）可以安全地共享同一个队列。
+ * 未结束的任务放在active目录，结束后移到finished目录等待过期清理，
+ * 租用时只扫描active目录，持锁时间不随保留期内的已结束任务增长。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.job-queue.type", havingValue = "filesystem")
+public class FileSystemConversionJobQueue extends AbstractConversionJobQueue {
+    
+    private static final String LOCK_FILE = "queue.lock";
+    private static final String JOB_SUFFIX = ".json";
+    private static final String ACTIVE_DIR = "active";
+    private static final String FINISHED_DIR = "finished";
+    
+    @Value("${app.job-queue.directory:${app.download.directory:${java.io.tmpdir}/ezmp3-downloads}/jobs}")
+    private String queueDirectory;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private Path queueDir;
+    
+    private Path activeDir;
+    
+    private Path finishedDir;
+    
+    private FileChannel lockChannel;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        queueDir = Paths.get(queueDirectory);
+        activeDir = queueDir.resolve(ACTIVE_DIR);
+        finishedDir = queueDir.resolve(FINISHED_DIR);
+        Files.createDirectories(activeDir);
+        Files.createDirectories(finishedDir);
+        lockChannel = FileChannel.open(queueDir.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        locked(() -> {
+            migrateLegacyJobs();
+            return null;
+        });
+        log.info("文件任务队列已初始化: {}", queueDir.toAbsolutePath());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        lockChannel.close();
+    }
+    
+    /**
+     * 进程内用synchronized互斥（同一JVM内重复获取FileLock会抛出异常），进程间用文件锁互斥
+     */
+    @Override
+    protected synchronized <T> T locked(LockedOperation<T> operation) {
+        try (FileLock ignored = lockChannel.lock()) {
+            return operation.run();
+        } catch (IOException e) {
+            throw new IllegalStateException("读写任务队列失败: " + queueDir, e);
+        }
+    }
+    
+    @Override
+    protected Collection<ConversionJob> loadAll() throws IOException {
+        List<ConversionJob> jobs = readJobs(activeDir);
+        jobs.addAll(readJobs(finishedDir));
+        return jobs;
+    }
+    
+    @Override
+    protected Collection<ConversionJob> loadActive() throws IOException {
+        return readJobs(activeDir);
+    }
+    
+    /**
+     * 先查finished目录：结束的任务先写入finished再删除active中的旧文件，两处都存在时以finished为准
+     */
+    @Override
+    protected ConversionJob load(String jobId) throws IOException {
+        for (Path dir : List.of(finishedDir, activeDir)) {
+            Path path = dir.resolve(jobId + JOB_SUFFIX);
+            if (Files.isRegularFile(path)) {
+                return objectMapper.readValue(path.toFile(), ConversionJob.class);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    protected void save(ConversionJob job) throws IOException {
+        boolean finished = job.getStatus().isFinished();
+        Path target = (finished ? finishedDir : activeDir).resolve(job.getId() + JOB_SUFFIX);
+        Path temp = target.resolveSibling(job.getId() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), job);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (finished) {
+            Files.deleteIfExists(activeDir.resolve(job.getId() + JOB_SUFFIX));
+        }
+    }
+    
+    @Override
+    protected void delete(String jobId) throws IOException {
+        Files.deleteIfExists(activeDir.resolve(jobId + JOB_SUFFIX));
+        Files.deleteIfExists(finishedDir.resolve(jobId + JOB_SUFFIX));
+    }
+    
+    private List<ConversionJob> readJobs(Path dir) throws IOException {
+        List<ConversionJob> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + JOB_SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    jobs.add(objectMapper.readValue(path.toFile(), ConversionJob.class));
+                } catch (IOException e) {
+                    log.warn("无法读取任务文件，已跳过: {}", path, e);
+                }
+            }
+        }
+        return jobs;
+    }
+    
+    /**
+     * 把旧版本直接放在队列目录下的任务文件按状态移入active或finished目录，
+     * 并清理结束时未来得及删除的active文件
+     */
+    private void migrateLegacyJobs() throws IOException {
+        for (ConversionJob job : readJobs(queueDir)) {
+            save(job);
+            Files.deleteIfExists(queueDir.resolve(job.getId() + JOB_SUFFIX));
+        }
+        for (ConversionJob job : readJobs(activeDir)) {
+            if (Files.exists(finishedDir.resolve(job.getId() + JOB_SUFFIX))) {
+                Files.deleteIfExists(activeDir.resolve(job.getId() + JOB_SUFFIX));
+            }
+        }
+    }
+}
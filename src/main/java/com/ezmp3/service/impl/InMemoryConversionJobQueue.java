@@ -0,0 +1,72 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.ConversionJob;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 进程内转换任务队列，API和worker运行在同一个JVM中时使用，重启后任务丢失
+ */
+@Service
+@ConditionalOnProperty(name = "app.job-queue.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversionJobQueue extends AbstractConversionJobQueue {
+    
+    private final Map<String, ConversionJob> jobs = new HashMap<>();
+    
+    @Override
+    protected synchronized <T> T locked(LockedOperation<T> operation) {
+        try {
+            return operation.run();
+        } catch (IOException e) {
+            // 内存操作不会抛出IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 返回副本，调用方的修改只有save后才生效，与持久化队列的语义一致
+     */
+    @Override
+    protected Collection<ConversionJob> loadAll() {
+        List<ConversionJob> copies = new ArrayList<>(jobs.size());
+        for (ConversionJob job : jobs.values()) {
+            copies.add(job.toBuilder().build());
+        }
+        return copies;
+    }
+    
+    @Override
+    protected Collection<ConversionJob> loadActive() {
+        List<ConversionJob> copies = new ArrayList<>();
+        for (ConversionJob job : jobs.values()) {
+            if (job.getStatus() == ConversionJob.Status.PENDING || job.getStatus() == ConversionJob.Status.LEASED) {
+                copies.add(job.toBuilder().build());
+            }
+        }
+        return copies;
+    }
+    
+    @Override
+    protected ConversionJob load(String jobId) {
+        ConversionJob job = jobs.get(jobId);
+        return job != null ? job.toBuilder().build() : null;
+    }
+    
+    @Override
+    protected void save(ConversionJob job) {
+        jobs.put(job.getId(), job.toBuilder().build());
+    }
+    
+    @Override
+    protected void delete(String jobId) {
+        jobs.remove(jobId);
+    }
+}
@@ -0,0 +1,486 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.CacheEntry;
+import com.ezmp3.service.Mp3CacheService;
+import com.ezmp3.util.DirectBufferPool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * MP3文件缓存服务实现类
+ *
+ * 索引以追加日志的形式保存在缓存目录中，每行一条记录并附带行校验值，
+ * 启动时顺序重放即可恢复内存索引；崩溃时写了一半的尾行会因校验失败被丢弃。
+ * 后台定期将日志压缩为当前快照，同时按容量上限淘汰最久未访问的文件。
+ * 多个键可以通过别名共享同一个文件（例如内容相同的不同视频），文件按引用计数管理，
+ * 最后一个引用被移除时才删除。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class Mp3CacheServiceImpl implements Mp3CacheService {
+
+    private static final String INDEX_FILE = "index.log";
+    private static final String OP_PUT = "PUT";
+    private static final String OP_DEL = "DEL";
+    private static final String OP_ACCESS = "ACC";
+
+    // 未被索引引用的文件超过该时长后在压缩时清理（崩溃时移动完成但未写入索引的文件）
+    private static final long ORPHAN_GRACE_MILLIS = 60 * 60 * 1000L;
+
+    private final DirectBufferPool bufferPool;
+
+    @Value("${app.cache.directory:${app.download.directory:${java.io.tmpdir}/ezmp3-downloads}/cache}")
+    private String cacheDirectory;
+
+    @Value("${app.cache.max-size-mb:2048}")
+    private long maxSizeMb;
+
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 文件名 -> 引用该文件的条目数，需持有logLock
+     */
+    private final Map<String, Integer> fileRefs = new HashMap<>();
+
+    private final Object logLock = new Object();
+
+    private Path cacheDir;
+
+    private BufferedWriter logWriter;
+
+    private long logRecords;
+
+    /**
+     * 加载索引日志
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        cacheDir = Paths.get(cacheDirectory);
+        Files.createDirectories(cacheDir);
+
+        long start = System.currentTimeMillis();
+        Path indexPath = cacheDir.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            replay(indexPath);
+        }
+
+        // 丢弃文件已丢失或大小不一致的条目
+        entries.values().removeIf(entry -> {
+            File file = cacheDir.resolve(entry.getFileName()).toFile();
+            return !file.isFile() || file.length() != entry.getSize();
+        });
+
+        // 以当前快照重写日志，顺带截掉损坏的尾部
+        synchronized (logLock) {
+            entries.values().forEach(entry -> fileRefs.merge(entry.getFileName(), 1, Integer::sum));
+            rewriteLog();
+        }
+        log.info("MP3缓存索引加载完成: {} 个条目, 耗时 {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (logLock) {
+            try {
+                // 关闭前持久化最新的访问时间
+                rewriteLog();
+                logWriter.close();
+            } catch (IOException e) {
+                log.warn("关闭缓存索引日志失败", e);
+            }
+        }
+    }
+
+    @Override
+    public File lookup(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        File file = cacheDir.resolve(entry.getFileName()).toFile();
+        if (!file.isFile()) {
+            log.warn("缓存文件已丢失: {}", file.getAbsolutePath());
+            remove(key);
+            return null;
+        }
+
+        // 访问时间只更新内存，压缩时再落盘，避免每次命中都写日志
+        entry.setLastAccess(System.currentTimeMillis());
+        return file;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public File put(String key, File source) throws IOException {
+        long checksum = checksum(source);
+        String fileName = key + "_" + Long.toHexString(checksum) + ".mp3";
+        Path target = cacheDir.resolve(fileName);
+        // 耗时的跨文件系统复制在锁外完成，最后的重命名和写索引在锁内进行，
+        // 避免同名文件的并发移除或淘汰删掉刚移入的文件而留下没有文件的索引条目
+        Path staged = stageIntoCache(source.toPath(), fileName);
+        try {
+            synchronized (logLock) {
+                Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                putEntry(CacheEntry.builder()
+                        .key(key)
+                        .fileName(fileName)
+                        .size(Files.size(target))
+                        .lastAccess(System.currentTimeMillis())
+                        .checksum(checksum)
+                        .build());
+            }
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+
+        log.debug("MP3已加入缓存: key={}, file={}", key, fileName);
+        return target.toFile();
+    }
+
+    @Override
+    public File alias(String key, String targetKey) throws IOException {
+        synchronized (logLock) {
+            CacheEntry target = entries.get(targetKey);
+            if (target == null) {
+                return null;
+            }
+            File file = cacheDir.resolve(target.getFileName()).toFile();
+            if (!file.isFile()) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            target.setLastAccess(now);
+            if (!key.equals(targetKey)) {
+                putEntry(target.toBuilder().key(key).lastAccess(now).build());
+            }
+            log.debug("缓存别名: {} -> {}", key, target.getFileName());
+            return file;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        removeEntry(key);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.cache.compact-interval:600000}", fixedDelayString = "${app.cache.compact-interval:600000}")
+    public void compact() {
+        long start = System.currentTimeMillis();
+        evictOverCapacity();
+
+        synchronized (logLock) {
+            try {
+                rewriteLog();
+            } catch (IOException e) {
+                log.error("压缩缓存索引日志失败", e);
+                return;
+            }
+        }
+
+        cleanOrphans();
+        log.debug("缓存索引压缩完成: {} 个条目, 耗时 {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 写入条目并更新文件引用计数，调用方需持有logLock
+     */
+    private void putEntry(CacheEntry entry) throws IOException {
+        appendRecord(OP_PUT, entry);
+        CacheEntry previous = entries.put(entry.getKey(), entry);
+        // 先增加新文件的引用，新旧文件相同时不会被误删
+        fileRefs.merge(entry.getFileName(), 1, Integer::sum);
+        if (previous != null) {
+            releaseFile(previous.getFileName());
+        }
+        // 日志中的过期记录过多时立即压缩
+        if (logRecords > entries.size() * 2L + 1024) {
+            rewriteLog();
+        }
+    }
+
+    /**
+     * 移除条目
+     *
+     * @return 如果对应文件因此被删除则返回true
+     */
+    private boolean removeEntry(String key) {
+        synchronized (logLock) {
+            CacheEntry entry = entries.remove(key);
+            if (entry == null) {
+                return false;
+            }
+            try {
+                appendRecord(OP_DEL, entry);
+            } catch (IOException e) {
+                log.warn("写入缓存索引日志失败: key={}", key, e);
+            }
+            return releaseFile(entry.getFileName());
+        }
+    }
+
+    /**
+     * 减少文件引用计数，没有引用时删除文件，调用方需持有logLock
+     *
+     * @return 如果文件被删除则返回true
+     */
+    private boolean releaseFile(String fileName) {
+        Integer refs = fileRefs.merge(fileName, -1, Integer::sum);
+        if (refs != null && refs > 0) {
+            return false;
+        }
+        fileRefs.remove(fileName);
+        deleteFile(fileName);
+        return true;
+    }
+
+    /**
+     * 按容量上限以文件为单位淘汰最久未访问的文件
+     *
+     * 共享同一文件的条目（例如视频ID键和内容指纹别名）一起淘汰，文件的访问时间取其中最新的一个，
+     * 因此命中只经过视频ID键时，别名不会因为自身访问时间较旧而被先淘汰。
+     */
+    private void evictOverCapacity() {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Map<String, List<CacheEntry>> byFile = new HashMap<>();
+        entries.values().forEach(entry -> byFile.computeIfAbsent(entry.getFileName(), name -> new ArrayList<>()).add(entry));
+        long total = byFile.values().stream().mapToLong(refs -> refs.get(0).getSize()).sum();
+        if (total <= maxBytes) {
+            return;
+        }
+
+        List<List<CacheEntry>> candidates = new ArrayList<>(byFile.values());
+        candidates.sort(Comparator.comparingLong(refs -> refs.stream().mapToLong(CacheEntry::getLastAccess).max().orElse(0)));
+        for (List<CacheEntry> refs : candidates) {
+            if (total <= maxBytes) {
+                break;
+            }
+            boolean deleted = false;
+            for (CacheEntry entry : refs) {
+                deleted |= removeEntry(entry.getKey());
+            }
+            if (deleted) {
+                total -= refs.get(0).getSize();
+            }
+            log.info("淘汰缓存文件: file={}, keys={}, size={}", refs.get(0).getFileName(),
+                    refs.stream().map(CacheEntry::getKey).collect(Collectors.toList()), refs.get(0).getSize());
+        }
+    }
+
+    /**
+     * 清理没有被索引引用的旧文件
+     */
+    private void cleanOrphans() {
+        Set<String> referenced = entries.values().stream()
+                .map(CacheEntry::getFileName)
+                .collect(Collectors.toSet());
+        long threshold = System.currentTimeMillis() - ORPHAN_GRACE_MILLIS;
+
+        File[] files = cacheDir.toFile().listFiles((dir, name) -> name.endsWith(".mp3") || name.endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!referenced.contains(file.getName()) && file.lastModified() < threshold) {
+                log.info("清理未被索引引用的缓存文件: {}", file.getName());
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 重放索引日志，跳过校验失败的记录
+     */
+    private void replay(Path indexPath) throws IOException {
+        int corrupted = 0;
+        try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = parseRecord(line);
+                if (fields == null) {
+                    corrupted++;
+                    continue;
+                }
+
+                CacheEntry entry = CacheEntry.builder()
+                        .key(fields[1])
+                        .fileName(fields[2])
+                        .size(Long.parseLong(fields[3]))
+                        .lastAccess(Long.parseLong(fields[4]))
+                        .checksum(Long.parseLong(fields[5], 16))
+                        .build();
+
+                switch (fields[0]) {
+                    case OP_PUT, OP_ACCESS -> entries.put(entry.getKey(), entry);
+                    case OP_DEL -> entries.remove(entry.getKey());
+                    default -> corrupted++;
+                }
+            }
+        }
+        if (corrupted > 0) {
+            log.warn("缓存索引日志中有 {} 条损坏记录已被跳过", corrupted);
+        }
+    }
+
+    /**
+     * 解析一行日志记录
+     *
+     * @return 字段数组，校验失败则返回null
+     */
+    private String[] parseRecord(String line) {
+        int lastTab = line.lastIndexOf('\t');
+        if (lastTab < 0) {
+            return null;
+        }
+
+        String body = line.substring(0, lastTab);
+        String[] fields = body.split("\t");
+        if (fields.length != 6) {
+            return null;
+        }
+
+        try {
+            if (Long.parseLong(line.substring(lastTab + 1), 16) != crc(body)) {
+                return null;
+            }
+            Long.parseLong(fields[3]);
+            Long.parseLong(fields[4]);
+            Long.parseLong(fields[5], 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return fields;
+    }
+
+    /**
+     * 追加一条日志记录，调用方需持有logLock
+     */
+    private void appendRecord(String op, CacheEntry entry) throws IOException {
+        writeRecord(logWriter, op, entry);
+        logWriter.flush();
+        logRecords++;
+    }
+
+    private static void writeRecord(BufferedWriter writer, String op, CacheEntry entry) throws IOException {
+        String body = String.join("\t",
+                op,
+                entry.getKey(),
+                entry.getFileName(),
+                String.valueOf(entry.getSize()),
+                String.valueOf(entry.getLastAccess()),
+                Long.toHexString(entry.getChecksum()));
+        writer.write(body);
+        writer.write('\t');
+        writer.write(Long.toHexString(crc(body)));
+        writer.newLine();
+    }
+
+    /**
+     * 将当前内存索引写成新的日志并原子替换旧日志，调用方需持有logLock
+     *
+     * 快照先完整写入临时文件；写入或替换失败时旧日志保持不变，写入器总是重新指向index.log。
+     */
+    private void rewriteLog() throws IOException {
+        Path indexPath = cacheDir.resolve(INDEX_FILE);
+        Path tempPath = cacheDir.resolve(INDEX_FILE + ".tmp");
+
+        long records = 0;
+        try (FileOutputStream out = new FileOutputStream(tempPath.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (CacheEntry entry : entries.values()) {
+                writeRecord(writer, OP_ACCESS, entry);
+                records++;
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+
+        try {
+            if (logWriter != null) {
+                logWriter.close();
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logRecords = records;
+        } finally {
+            logWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(indexPath.toFile(), true), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 把文件移入缓存目录中的临时文件
+     *
+     * 缓存目录与源文件在不同文件系统时无法原子移动，改为复制后删除源文件；
+     * 之后由调用方在缓存目录内原子重命名，保证缓存目录中不会出现写了一半的MP3。
+     */
+    private Path stageIntoCache(Path source, String fileName) throws IOException {
+        Path temp = cacheDir.resolve(fileName + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(source, temp, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.copy(source, temp);
+            } catch (IOException copyFailure) {
+                Files.deleteIfExists(temp);
+                throw copyFailure;
+            }
+            Files.deleteIfExists(source);
+        }
+        return temp;
+    }
+
+    private void deleteFile(String fileName) {
+        try {
+            Files.deleteIfExists(cacheDir.resolve(fileName));
+        } catch (IOException e) {
+            log.warn("删除缓存文件失败: {}", fileName, e);
+        }
+    }
+
+    private static long crc(String text) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(text.getBytes(StandardCharsets.UTF_8));
+        return crc32.getValue();
+    }
+
+    private long checksum(File file) throws IOException {
+        CRC32 crc32 = new CRC32();
+        bufferPool.readFile(file.toPath(), crc32::update);
+        return crc32.getValue();
+    }
+}
@@ -3,8 +3,18 @@ package com.ezmp3.service.impl;
 import com.ezmp3.dto.Mp3ConversionRequestDto;
 import com.ezmp3.dto.Mp3ConversionResponseDto;
 import com.ezmp3.dto.VideoInfoDto;
+import com.ezmp3.model.ConversionJob;
+import com.ezmp3.model.EncodingProfile;
+import com.ezmp3.model.Mp3ConversionResult;
+import com.ezmp3.service.ConversionJobQueue;
+import com.ezmp3.service.ConversionScheduler;
+import com.ezmp3.service.Mp3CacheService;
 import com.ezmp3.service.Mp3ConversionService;
+import com.ezmp3.service.RemoteResultStore;
+import com.ezmp3.service.VideoAnalysisService;
 import com.ezmp3.service.YouTubeService;
+import com.ezmp3.util.AudioFingerprint;
+import com.ezmp3.util.SingleFlight;
 import com.ezmp3.util.YouTubeUrlUtil;
 import com.github.kiulian.downloader.YoutubeDownloader;
 import com.github.kiulian.downloader.YoutubeException;
@@ -13,6 +23,7 @@ import com.github.kiulian.downloader.downloader.YoutubeProgressCallback;
 import com.github.kiulian.downloader.downloader.request.RequestVideoFileDownload;
 import com.github.kiulian.downloader.downloader.request.RequestVideoInfo;
 import com.github.kiulian.downloader.downloader.response.Response;
+import com.github.kiulian.downloader.model.Extension;
 import com.github.kiulian.downloader.model.videos.VideoInfo;
 import com.github.kiulian.downloader.model.videos.formats.AudioFormat;
 import lombok.RequiredArgsConstructor;
@@ -22,17 +33,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import ws.schild.jave.Encoder;
-import ws.schild.jave.MultimediaObject;
-import ws.schild.jave.encode.AudioAttributes;
-import ws.schild.jave.encode.EncodingAttributes;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -44,13 +54,48 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class Mp3ConversionServiceImpl implements Mp3ConversionService {
     
+    /**
+     * 无法获取视频时长时用于调度的默认时长（秒）
+     */
+    private static final long DEFAULT_EXPECTED_SECONDS = 300;
+    
     private final YouTubeService youTubeService;
     
+    private final Mp3CacheService mp3CacheService;
+    
+    private final RemoteResultStore remoteResultStore;
+    
+    private final AudioRangeDownloader audioRangeDownloader;
+    
+    private final ConversionScheduler conversionScheduler;
+    
+    private final VideoAnalysisService videoAnalysisService;
+    
+    private final EncodingProfileSelector encodingProfileSelector;
+    
+    private final Mp3Encoder mp3Encoder;
+    
+    private final ConversionJobQueue conversionJobQueue;
+    
+    private final SingleFlight<Resource> peerConversions = new SingleFlight<>();
+    
     @Value("${app.download.directory:${java.io.tmpdir}/ezmp3-downloads}")
     private String downloadDirectory;
     
-    @Value("${app.conversion.timeout:300000}")
-    private long conversionTimeout;
+    @Value("${app.cache.dedup.enabled:true}")
+    private boolean dedupEnabled;
+    
+    @Value("${app.conversion.mode:local}")
+    private String conversionMode;
+    
+    @Value("${app.job-queue.poll-interval:500}")
+    private long jobPollInterval;
+    
+    @Value("${app.job-queue.wait-timeout:${app.conversion.timeout:300000}}")
+    private long jobWaitTimeout;
+    
+    @Value("${app.job-queue.wait-ratio:1.0}")
+    private double jobWaitRatio;
     
     @Override
     public Mp3ConversionResponseDto getConversionOptions(Mp3ConversionRequestDto request) {
@@ -76,13 +121,19 @@ public class Mp3ConversionServiceImpl implements Mp3ConversionService {
             // 构建下载选项
             Map<String, String> downloadOptions = buildDownloadOptions(videoId);
             
+            // 按当前负载预估直接下载时将使用的编码档位
+            String audioType = videoInfo != null ? videoAnalysisService.determineAudioType(videoInfo) : null;
+            EncodingProfile profile = encodingProfileSelector.select(EncodingProfile.fromName(request.getProfile()), audioType);
+            
             // 返回成功响应
-            return Mp3ConversionResponseDto.success(
+            Mp3ConversionResponseDto response = Mp3ConversionResponseDto.success(
                     videoId,
                     title,
                     bitrate,
                     downloadOptions
             );
+            response.setEncodingProfile(profile.name().toLowerCase());
+            return response;
             
         } catch (Exception e) {
             log.error("转换YouTube视频到MP3出错", e);
@@ -92,11 +143,87 @@ public class Mp3ConversionServiceImpl implements Mp3ConversionService {
     
     @Override
     public Resource downloadAndConvertToMp3(String url, String bitrate) throws Exception {
+        Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
+        request.setUrl(url);
+        request.setBitrate(bitrate);
+        return downloadAndConvertToMp3(request).getResource();
+    }
+    
+    @Override
+    public Mp3ConversionResult downloadAndConvertToMp3(Mp3ConversionRequestDto request) throws Exception {
         // 提取视频ID
-        String videoId = YouTubeUrlUtil.extractVideoId(url);
+        String videoId = YouTubeUrlUtil.extractVideoId(request.getUrl());
+        if (videoId == null) {
+            throw new IllegalArgumentException("无法提取视频ID");
+        }
+        
+        return convert(videoId, request, true, null);
+    }
+    
+    @Override
+    public boolean isCached(String videoId, String bitrate) {
+        // 按此时转换会使用的档位检查，与convert中的缓存查找保持一致
+        EncodingProfile profile = selectProfile(null, getVideoMetadata(videoId));
+        return acceptableProfiles(null, profile).stream()
+                .anyMatch(candidate -> mp3CacheService.contains(cacheKey(videoId, bitrate, candidate)));
+    }
+    
+    @Override
+    public Resource convertLocally(String videoId, String bitrate, String clientId) throws Exception {
+        Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
+        request.setUrl(YouTubeUrlUtil.buildYouTubeUrl(videoId));
+        request.setBitrate(bitrate);
+        request.setProfile(EncodingProfile.BALANCED.name());
+        request.setClientId(clientId);
+        // 多个节点同时转发同一个热门视频时只转换一次，其余请求等待同一个结果
+        // 请求节点按默认档位的缓存键保存结果，这里固定使用BALANCED，不随本节点负载降级
+        return peerConversions.execute(cacheKey(videoId, bitrate),
+                () -> convert(videoId, request, false, EncodingProfile.BALANCED).getResource());
+    }
+    
+    @Override
+    public Mp3ConversionResult convertLocally(Mp3ConversionRequestDto request) throws Exception {
+        String videoId = YouTubeUrlUtil.extractVideoId(request.getUrl());
         if (videoId == null) {
             throw new IllegalArgumentException("无法提取视频ID");
         }
+        return convert(videoId, request, false, null);
+    }
+    
+    /**
+     * 获取或转换MP3
+     * 
+     * @param videoId YouTube视频ID
+     * @param request 转换请求，包含比特率、编码档位、截取时间段和客户端标识
+     * @param allowRemote 本地未命中时是否先查询远程结果存储，并在队列模式下交给worker转换
+     * @param pinnedProfile 固定使用的编码档位，为空时根据请求、音频类型和节点负载选择
+     * @return 转换结果
+     */
+    private Mp3ConversionResult convert(String videoId, Mp3ConversionRequestDto request, boolean allowRemote,
+                                        EncodingProfile pinnedProfile) throws Exception {
+        String bitrate = request.getBitrate();
+        Double start = request.getStart();
+        Double end = request.getEnd();
+        String clientId = request.getClientId() != null ? request.getClientId() : "anonymous";
+        boolean clip = start != null || end != null;
+        
+        // 根据请求、音频类型和节点负载选择编码档位
+        VideoInfoDto metadata = getVideoMetadata(videoId);
+        EncodingProfile requested = EncodingProfile.fromName(request.getProfile());
+        EncodingProfile profile = pinnedProfile != null ? pinnedProfile : selectProfile(requested, metadata);
+        List<EncodingProfile> acceptable = acceptableProfiles(requested, profile);
+        
+        // 优先返回缓存的MP3，因负载降级时也接受已缓存的默认档位或更高质量版本
+        String baseKey = clip ? clipCacheKey(videoId, bitrate, start, end) : cacheKey(videoId, bitrate);
+        for (EncodingProfile candidate : acceptable) {
+            String key = profileCacheKey(baseKey, candidate);
+            File cachedFile = mp3CacheService.lookup(key);
+            if (cachedFile != null) {
+                log.info("命中MP3缓存: {}", key);
+                return new Mp3ConversionResult(new FileSystemResource(cachedFile), candidate, 0);
+            }
+        }
+        String cacheKey = profileCacheKey(baseKey, profile);
         
         // 创建下载目录
         File downloadDir = new File(downloadDirectory);
@@ -110,6 +237,25 @@ public class Mp3ConversionServiceImpl implements Mp3ConversionService {
         String uniqueId = UUID.randomUUID().toString();
         File audioFile = new File(downloadDir, videoId + "_" + uniqueId + ".mp3");
         
+        // 本地未命中时先查询归属节点或共享存储（远程存储只保存默认档位的完整音频），
+        // 因负载降级为FAST或SPEECH时默认档位的结果同样可以直接返回，不必在本节点重新编码
+        boolean shareable = !clip && profile == EncodingProfile.BALANCED;
+        if (!clip && acceptable.contains(EncodingProfile.BALANCED) && allowRemote
+                && remoteResultStore.fetch(videoId, bitrate, clientId, audioFile)) {
+            long fetchedBytes = audioFile.length();
+            File cached = mp3CacheService.put(profileCacheKey(baseKey, EncodingProfile.BALANCED), audioFile);
+            return new Mp3ConversionResult(new FileSystemResource(cached), EncodingProfile.BALANCED, fetchedBytes);
+        }
+        
+        // 队列模式下由worker节点转换，本节点只等待结果
+        if (allowRemote && "queue".equals(conversionMode)) {
+            return convertViaQueue(videoId, request, baseKey, audioFile, estimateSeconds(metadata, start, end));
+        }
+        
+        // 按预计时长排队申请转换名额
+        ConversionScheduler.Permit permit = conversionScheduler.acquire(clientId, estimateSeconds(metadata, start, end));
+        
+        File downloadedFile = null;
         try {
             // 初始化YouTube下载器
             YoutubeDownloader downloader = new YoutubeDownloader();
@@ -125,63 +271,90 @@ public class Mp3ConversionServiceImpl implements Mp3ConversionService {
                     .max(Comparator.comparingInt(AudioFormat::audioQuality))
                     .orElseThrow(() -> new RuntimeException("没有可用的音频格式"));
             
-            // 下载音频
-            log.info("开始下载视频 {} 的音频", videoId);
-            File tempAudioFile = new File(downloadDir, videoId + "_" + uniqueId + "_temp." + bestAudioFormat.extension().value());
-            RequestVideoFileDownload requestVideoFileDownload = new RequestVideoFileDownload(bestAudioFormat)
-                    .saveTo(tempAudioFile)
-                    .callback(new YoutubeProgressCallback<File>() {
-                        @Override
-                        public void onDownloading(int progress) {
-                            log.debug("下载进度: {}%", progress);
-                        }
-                        
-                        @Override
-                        public void onFinished(File file) {
-                            log.info("音频下载完成: {}", file.getAbsolutePath());
-                        }
-                        
-                        @Override
-                        public void onError(Throwable throwable) {
-                            log.error("音频下载失败", throwable);
-                        }
-                    })
-                    .async();
-            
-            Response<File> responseFile = downloader.downloadVideoFile(requestVideoFileDownload);
-            
-            // 等待下载完成
-            File downloadedFile = responseFile.data();
+            // 截取时间段
+            Double offset = null;
+            Double clipDuration = null;
             
-            // 转换为MP3
-            log.info("开始将 {} 转换为MP3", downloadedFile.getName());
-            int bitrateValue = Integer.parseInt(bitrate);
+            if (clip) {
+                double clipStart = start != null ? start : 0;
+                double clipEnd = end != null ? Math.min(end, videoInfo.details().lengthSeconds()) : videoInfo.details().lengthSeconds();
+                if (clipEnd <= clipStart) {
+                    throw new IllegalArgumentException("截取结束时间必须大于开始时间且不超过视频时长");
+                }
+                clipDuration = clipEnd - clipStart;
+                offset = clipStart;
+                
+                // 优先选择带分段索引的m4a格式，只下载所需的分段
+                AudioFormat m4aFormat = videoInfo.audioFormats()
+                        .stream()
+                        .filter(format -> format.extension() == Extension.M4A)
+                        .max(Comparator.comparingInt(AudioFormat::audioQuality))
+                        .orElse(null);
+                if (m4aFormat != null) {
+                    File clipFile = new File(downloadDir, videoId + "_" + uniqueId + "_clip.m4a");
+                    log.info("开始按段下载视频 {} 的音频: {}s-{}s", videoId, clipStart, clipEnd);
+                    AudioRangeDownloader.ClipDownload clipDownload = null;
+                    try {
+                        clipDownload = audioRangeDownloader.downloadClip(m4aFormat, clipFile, clipStart, clipEnd);
+                    } catch (IOException | RuntimeException e) {
+                        // 上游不支持Range、返回非206或分段索引损坏时改为下载完整音频
+                        log.warn("按段下载视频 {} 失败，改为下载完整音频: {}", videoId, e.getMessage());
+                    }
+                    if (clipDownload != null) {
+                        downloadedFile = clipDownload.file();
+                        offset = clipDownload.offsetSeconds();
+                    } else {
+                        clipFile.delete();
+                    }
+                }
+            }
             
-            // 设置音频属性
-            AudioAttributes audioAttributes = new AudioAttributes();
-            audioAttributes.setCodec("libmp3lame");
-            audioAttributes.setBitRate(bitrateValue * 1000); // 转为比特/秒
-            audioAttributes.setChannels(2);
-            audioAttributes.setSamplingRate(44100);
+            // 下载音频
+            if (downloadedFile == null) {
+                log.info("开始下载视频 {} 的音频", videoId);
+                File tempAudioFile = new File(downloadDir, videoId + "_" + uniqueId + "_temp." + bestAudioFormat.extension().value());
+                downloadedFile = downloadFull(downloader, bestAudioFormat, tempAudioFile);
+            }
+            long downloadedBytes = downloadedFile.length();
             
-            // 设置编码属性
-            EncodingAttributes encodingAttributes = new EncodingAttributes();
-            encodingAttributes.setOutputFormat("mp3");
-            encodingAttributes.setAudioAttributes(audioAttributes);
+            // 按内容指纹查找以其他视频ID缓存过的相同音频，命中时共享同一个MP3文件
+            String fingerprintKey = null;
+            if (!clip && dedupEnabled) {
+                try {
+                    String fingerprint = AudioFingerprint.compute(downloadedFile, videoInfo.details().lengthSeconds());
+                    fingerprintKey = profileCacheKey("fp_" + fingerprint + "_" + bitrate, profile);
+                } catch (IOException e) {
+                    // 指纹只用于去重，计算失败时照常转换
+                    log.warn("计算视频 {} 的音频指纹失败，跳过去重: {}", videoId, e.getMessage());
+                }
+            }
+            if (fingerprintKey != null) {
+                File shared = mp3CacheService.alias(cacheKey, fingerprintKey);
+                if (shared != null) {
+                    log.info("视频 {} 的音频与已缓存的MP3相同，跳过转换", videoId);
+                    if (shareable) {
+                        remoteResultStore.publish(videoId, bitrate, shared);
+                    }
+                    return new Mp3ConversionResult(new FileSystemResource(shared), profile, downloadedBytes);
+                }
+            }
             
-            // 编码文件
-            Encoder encoder = new Encoder();
-            encoder.encode(new MultimediaObject(downloadedFile), audioFile, encodingAttributes);
+            // 转换为MP3
+            log.info("开始将 {} 转换为MP3, 编码档位: {}", downloadedFile.getName(), profile);
+            mp3Encoder.encode(downloadedFile, audioFile, Integer.parseInt(bitrate), profile, offset, clipDuration);
             
             log.info("MP3转换完成: {}", audioFile.getAbsolutePath());
             
-            // 删除临时文件
-            if (downloadedFile.exists()) {
-                downloadedFile.delete();
+            // 放入缓存并发布到远程结果存储
+            File cached = mp3CacheService.put(cacheKey, audioFile);
+            if (fingerprintKey != null) {
+                mp3CacheService.alias(fingerprintKey, cacheKey);
+            }
+            if (shareable) {
+                remoteResultStore.publish(videoId, bitrate, cached);
             }
             
-            // 返回MP3文件资源
-            return new FileSystemResource(audioFile);
+            return new Mp3ConversionResult(new FileSystemResource(cached), profile, downloadedBytes);
             
         } catch (Exception e) {
             log.error("下载和转换MP3时出错", e);
@@ -190,9 +363,217 @@ public class Mp3ConversionServiceImpl implements Mp3ConversionService {
                 audioFile.delete();
             }
             throw e;
+        } finally {
+            permit.close();
+            
+            // 删除临时文件
+            if (downloadedFile != null && downloadedFile.exists()) {
+                downloadedFile.delete();
+            }
         }
     }
     
+    /**
+     * 提交转换任务并等待worker完成，结果文件移入本地缓存
+     * 
+     * @param videoId YouTube视频ID
+     * @param request 转换请求
+     * @param baseKey 不含编码档位的缓存键
+     * @param audioFile 结果复制到的本地文件
+     * @param expectedSeconds 预计处理的音频时长，worker按它公平地选取任务，等待时长也按它延长
+     * @return 转换结果
+     */
+    private Mp3ConversionResult convertViaQueue(String videoId, Mp3ConversionRequestDto request, String baseKey,
+                                                File audioFile, long expectedSeconds) throws Exception {
+        ConversionJob job = ConversionJob.builder()
+                .videoId(videoId)
+                .url(request.getUrl())
+                .bitrate(request.getBitrate())
+                .profile(request.getProfile())
+                .start(request.getStart())
+                .end(request.getEnd())
+                .clientId(request.getClientId())
+                .expectedSeconds(expectedSeconds)
+                .build();
+        String jobId = conversionJobQueue.submit(job);
+        log.info("转换任务已提交到队列: id={}, videoId={}", jobId, videoId);
+        
+        // 等待时长包括排队、下载和编码，按音频时长延长，否则长视频在队列模式下必然超时
+        long waitTimeout = jobWaitTimeout + (long) (Math.max(0, expectedSeconds) * 1000 * jobWaitRatio);
+        long deadline = System.currentTimeMillis() + waitTimeout;
+        boolean finished = false;
+        try {
+            while (true) {
+                ConversionJob current = conversionJobQueue.get(jobId);
+                if (current == null) {
+                    throw new IllegalStateException("转换任务已丢失: " + jobId);
+                }
+                if (current.getStatus() == ConversionJob.Status.DONE) {
+                    // worker的编码档位按worker节点的负载选择，以实际档位作为缓存键
+                    EncodingProfile profile = EncodingProfile.fromName(current.getEncodingProfile());
+                    if (profile == null) {
+                        profile = EncodingProfile.BALANCED;
+                    }
+                    Path result = Paths.get(current.getResultFile());
+                    Files.copy(result, audioFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Files.deleteIfExists(result);
+                    finished = true;
+                    File cached = mp3CacheService.put(profileCacheKey(baseKey, profile), audioFile);
+                    return new Mp3ConversionResult(new FileSystemResource(cached), profile, current.getDownloadedBytes());
+                }
+                if (current.getStatus().isFinished()) {
+                    finished = true;
+                    throw new RuntimeException("转换任务失败: " + current.getError());
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("等待转换任务超时（" + waitTimeout + " ms）: " + jobId);
+                }
+                Thread.sleep(jobPollInterval);
+            }
+        } finally {
+            // 超时、中断或出错时取消任务，避免worker在没有人等待时继续转换
+            if (!finished && conversionJobQueue.cancel(jobId)) {
+                log.info("已放弃等待转换任务: id={}", jobId);
+            }
+        }
+    }
+    
+    /**
+     * 完整下载音频
+     * 
+     * 优先直接请求音频地址，用缓冲池写入文件；失败时改用YouTube下载器。
+     * 
+     * @param downloader YouTube下载器
+     * @param format 音频格式
+     * @param target 保存的文件
+     * @return 下载完成的文件
+     */
+    private File downloadFull(YoutubeDownloader downloader, AudioFormat format, File target) {
+        try {
+            long bytes = audioRangeDownloader.downloadFull(format, target);
+            log.info("音频下载完成: {}, {} 字节", target.getAbsolutePath(), bytes);
+            return target;
+        } catch (IOException | RuntimeException e) {
+            log.warn("直接下载音频失败，改用YouTube下载器: {}", e.getMessage());
+            target.delete();
+        }
+        
+        RequestVideoFileDownload requestVideoFileDownload = new RequestVideoFileDownload(format)
+                .saveTo(target)
+                .callback(new YoutubeProgressCallback<File>() {
+                    @Override
+                    public void onDownloading(int progress) {
+                        log.debug("下载进度: {}%", progress);
+                    }
+                    
+                    @Override
+                    public void onFinished(File file) {
+                        log.info("音频下载完成: {}", file.getAbsolutePath());
+                    }
+                    
+                    @Override
+                    public void onError(Throwable throwable) {
+                        log.error("音频下载失败", throwable);
+                    }
+                })
+                .async();
+        
+        Response<File> responseFile = downloader.downloadVideoFile(requestVideoFileDownload);
+        
+        // 等待下载完成
+        return responseFile.data();
+    }
+    
+    /**
+     * 根据请求、音频类型和节点负载选择编码档位
+     */
+    private EncodingProfile selectProfile(EncodingProfile requested, VideoInfoDto metadata) {
+        String audioType = metadata != null ? videoAnalysisService.determineAudioType(metadata) : null;
+        return encodingProfileSelector.select(requested, audioType);
+    }
+    
+    /**
+     * 可以直接返回的缓存档位
+     *
+     * FAST也接受已缓存的更高质量版本；负载升高时自动选用的SPEECH也接受默认档位，
+     * 客户端明确请求SPEECH时只返回SPEECH。
+     *
+     * @param requested 客户端请求的档位，可以为空
+     * @param profile 实际使用的编码档位
+     */
+    private static List<EncodingProfile> acceptableProfiles(EncodingProfile requested, EncodingProfile profile) {
+        if (profile == EncodingProfile.FAST) {
+            return List.of(EncodingProfile.FAST, EncodingProfile.BALANCED, EncodingProfile.BEST);
+        }
+        if (profile == EncodingProfile.SPEECH && requested != EncodingProfile.SPEECH) {
+            return List.of(EncodingProfile.SPEECH, EncodingProfile.BALANCED);
+        }
+        return List.of(profile);
+    }
+    
+    /**
+     * 获取视频元数据，失败时返回null，不影响转换
+     */
+    private VideoInfoDto getVideoMetadata(String videoId) {
+        try {
+            return youTubeService.getVideoInfo(videoId);
+        } catch (Exception e) {
+            log.debug("无法获取视频元数据: {}", videoId);
+            return null;
+        }
+    }
+    
+    /**
+     * 估算需要处理的音频时长，用于调度
+     * 
+     * @return 预计时长（秒），无法获取视频时长时按默认值估算
+     */
+    private long estimateSeconds(VideoInfoDto metadata, Double start, Double end) {
+        if (start != null && end != null) {
+            return (long) Math.ceil(end - start);
+        }
+        
+        long duration = DEFAULT_EXPECTED_SECONDS;
+        if (metadata != null && metadata.getDuration() != null) {
+            duration = metadata.getDuration();
+        }
+        
+        if (end != null) {
+            duration = Math.min(duration, (long) Math.ceil(end));
+        }
+        if (start != null) {
+            duration = Math.max(1, duration - start.longValue());
+        }
+        return duration;
+    }
+    
+    /**
+     * 构建缓存键
+     */
+    private static String cacheKey(String videoId, String bitrate) {
+        return videoId + "_" + bitrate;
+    }
+    
+    private static String cacheKey(String videoId, String bitrate, EncodingProfile profile) {
+        return profileCacheKey(cacheKey(videoId, bitrate), profile);
+    }
+    
+    /**
+     * 构建截取片段的缓存键
+     */
+    private static String clipCacheKey(String videoId, String bitrate, Double start, Double end) {
+        return cacheKey(videoId, bitrate)
+                + "_" + (start != null ? String.format("%.3f", start) : "0")
+                + "-" + (end != null ? String.format("%.3f", end) : "end");
+    }
+    
+    /**
+     * 在缓存键后附加编码档位，默认档位不附加以兼容已有缓存
+     */
+    private static String profileCacheKey(String baseKey, EncodingProfile profile) {
+        return profile == EncodingProfile.BALANCED ? baseKey : baseKey + "_" + profile.name().toLowerCase();
+    }
+    
     /**
      * 构建下载选项
      * 
@@ -0,0 +1,96 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.EncodingProfile;
+import org.springframework.stereotype.Component;
+import ws.schild.jave.Encoder;
+import ws.schild.jave.EncoderException;
+import ws.schild.jave.MultimediaObject;
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingAttributes;
+
+import java.io.File;
+
+/**
+ * MP3编码器，封装ffmpeg（libmp3lame）的编码参数
+ */
+@Component
+public class Mp3Encoder {
+    
+    /**
+     * 将音频文件编码为MP3
+     * 
+     * @param source 源音频文件
+     * @param target 输出的MP3文件
+     * @param bitrate 请求的比特率（kbps）
+     * @param profile 编码档位
+     * @param offset 开始编码的位置（秒），为空表示从头开始
+     * @param duration 编码的时长（秒），为空表示到结尾
+     * @throws EncoderException 如果编码失败
+     */
+    public void encode(File source, File target, int bitrate, EncodingProfile profile,
+                       Double offset, Double duration) throws EncoderException {
+        // 设置编码属性
+        EncodingAttributes encodingAttributes = new EncodingAttributes();
+        encodingAttributes.setOutputFormat("mp3");
+        encodingAttributes.setAudioAttributes(buildAudioAttributes(bitrate, profile));
+        if (offset != null) {
+            // ffmpeg在输入端定位并解码裁剪，精确到采样
+            encodingAttributes.setOffset(offset.floatValue());
+        }
+        if (duration != null) {
+            encodingAttributes.setDuration(duration.floatValue());
+        }
+        
+        // 编码文件
+        Encoder encoder = new Encoder();
+        encoder.encode(new MultimediaObject(source), target, encodingAttributes);
+    }
+    
+    /**
+     * 按编码档位设置音频属性
+     */
+    private AudioAttributes buildAudioAttributes(int bitrate, EncodingProfile profile) {
+        AudioAttributes audioAttributes = new AudioAttributes();
+        audioAttributes.setCodec("libmp3lame");
+        
+        switch (profile) {
+            case BEST -> {
+                // 只设置质量不设置比特率时，libmp3lame使用VBR
+                audioAttributes.setQuality(vbrQuality(bitrate));
+                audioAttributes.setChannels(2);
+                audioAttributes.setSamplingRate(44100);
+            }
+            case FAST -> {
+                audioAttributes.setBitRate(Math.min(bitrate, 128) * 1000);
+                audioAttributes.setChannels(2);
+                audioAttributes.setSamplingRate(32000);
+            }
+            case SPEECH -> {
+                audioAttributes.setBitRate(Math.min(bitrate, 64) * 1000);
+                audioAttributes.setChannels(1);
+                audioAttributes.setSamplingRate(22050);
+            }
+            default -> {
+                audioAttributes.setBitRate(bitrate * 1000); // 转为比特/秒
+                audioAttributes.setChannels(2);
+                audioAttributes.setSamplingRate(44100);
+            }
+        }
+        return audioAttributes;
+    }
+    
+    /**
+     * 将请求的比特率映射为LAME VBR等级（0为最高质量）
+     */
+    private static int vbrQuality(int bitrate) {
+        if (bitrate >= 256) {
+            return 0;
+        } else if (bitrate >= 192) {
+            return 2;
+        } else if (bitrate >= 128) {
+            return 4;
+        } else {
+            return 7;
+        }
+    }
+}
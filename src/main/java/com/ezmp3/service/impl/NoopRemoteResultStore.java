@@ -0,0 +1,25 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.service.RemoteResultStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+
+/**
+ * 不使用共享存储的单机实现
+ */
+@Service
+@ConditionalOnProperty(name = "app.remote-store.type", havingValue = "none", matchIfMissing = true)
+public class NoopRemoteResultStore implements RemoteResultStore {
+    
+    @Override
+    public boolean fetch(String videoId, String bitrate, String clientId, File target) {
+        return false;
+    }
+    
+    @Override
+    public void publish(String videoId, String bitrate, File file) {
+        // 单机模式下无需发布
+    }
+}
@@ -0,0 +1,172 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.controller.SharedSecretInterceptor;
+import com.ezmp3.service.RemoteResultStore;
+import com.ezmp3.util.ConsistentHashRing;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于一致性哈希的节点间结果存储
+ *
+ * 每个视频ID归属于哈希环上的一个节点，非归属节点未命中本地缓存时向归属节点请求，
+ * 由归属节点负责转换并缓存，这样每个视频在集群中只需转换一次。
+ * 连接失败的节点在down-millis内被标记为不可用，期间直接在本地转换，不再等待连接超时。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.remote-store.type", havingValue = "peer")
+public class PeerRemoteResultStore implements RemoteResultStore {
+
+    /**
+     * 节点间转发请求的标记头，值为发起请求的节点，归属节点据此记录来源
+     */
+    public static final String FORWARDED_HEADER = "X-Ezmp3-Forwarded";
+
+    /**
+     * 原始客户端标识，归属节点用它代替转发节点进行公平调度
+     */
+    public static final String CLIENT_ID_HEADER = "X-Ezmp3-Client-Id";
+
+    @Value("${app.cluster.nodes}")
+    private List<String> nodes;
+
+    @Value("${app.cluster.self}")
+    private String self;
+
+    @Value("${app.cluster.token:}")
+    private String clusterToken;
+
+    @Value("${app.cluster.virtual-nodes:160}")
+    private int virtualNodes;
+
+    @Value("${app.conversion.timeout:300000}")
+    private long conversionTimeout;
+
+    @Value("${app.cluster.connect-timeout:1000}")
+    private long connectTimeout;
+
+    @Value("${app.cluster.down-millis:30000}")
+    private long downMillis;
+
+    /**
+     * 节点 -> 标记为不可用的截止时间
+     */
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+
+    private ConsistentHashRing ring;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        if (clusterToken == null || clusterToken.isBlank()) {
+            throw new IllegalStateException("peer模式需要配置app.cluster.token");
+        }
+        ring = new ConsistentHashRing(nodes, virtualNodes);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .build();
+        log.info("节点间结果存储已启用: self={}, nodes={}", self, nodes);
+    }
+
+    @Override
+    public boolean fetch(String videoId, String bitrate, String clientId, File target) {
+        String owner = ring.getOwner(videoId);
+        if (owner == null || owner.equals(self)) {
+            return false;
+        }
+        if (isDown(owner)) {
+            log.debug("归属节点 {} 暂不可用，直接本地转换: {}", owner, videoId);
+            return false;
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(owner + "/v1/internal/mp3/" + videoId + "?bitrate=" + bitrate))
+                .header(FORWARDED_HEADER, self)
+                .header(CLIENT_ID_HEADER, clientId)
+                .header(SharedSecretInterceptor.TOKEN_HEADER, clusterToken)
+                .timeout(Duration.ofMillis(conversionTimeout))
+                .GET()
+                .build();
+
+        try {
+            Path targetPath = target.toPath();
+            HttpResponse<Path> response = httpClient.send(request, HttpResponse.BodyHandlers.ofFile(
+                    targetPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+            if (response.statusCode() != 200) {
+                log.warn("归属节点 {} 返回状态码 {}，改为本地转换: {}", owner, response.statusCode(), videoId);
+                target.delete();
+                return false;
+            }
+            downUntil.remove(owner);
+            log.info("从归属节点 {} 获取MP3: {}", owner, videoId);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            target.delete();
+            return false;
+        } catch (HttpTimeoutException e) {
+            // 连接超时说明节点不可达；连接成功后等待转换超时只说明转换慢，不标记节点
+            if (e instanceof HttpConnectTimeoutException) {
+                markDown(owner);
+            }
+            log.warn("请求归属节点 {} 超时，改为本地转换: {}", owner, videoId);
+            target.delete();
+            return false;
+        } catch (IOException e) {
+            markDown(owner);
+            log.warn("请求归属节点 {} 失败，改为本地转换: {}", owner, videoId, e);
+            target.delete();
+            return false;
+        } catch (Exception e) {
+            log.warn("请求归属节点 {} 失败，改为本地转换: {}", owner, videoId, e);
+            target.delete();
+            return false;
+        }
+    }
+
+    /**
+     * 节点是否处于不可用标记期内
+     */
+    boolean isDown(String node) {
+        Long until = downUntil.get(node);
+        if (until == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= until) {
+            downUntil.remove(node, until);
+            return false;
+        }
+        return true;
+    }
+
+    private void markDown(String node) {
+        if (downUntil.put(node, System.currentTimeMillis() + downMillis) == null) {
+            log.warn("归属节点 {} 无法连接，{} ms内不再转发", node, downMillis);
+        }
+    }
+
+    @Override
+    public void publish(String videoId, String bitrate, File file) {
+        // 归属节点在处理转发请求时已写入自己的缓存，无需额外发布
+    }
+}
@@ -0,0 +1,224 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.dto.Mp3ConversionRequestDto;
+import com.ezmp3.service.Mp3ConversionService;
+import com.ezmp3.service.PrefetchService;
+import com.ezmp3.util.CountMinSketch;
+import com.ezmp3.util.YouTubeUrlUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * 热门视频预取服务实现类
+ *
+ * 用Count-Min Sketch统计请求频率，另外维护一个有界的候选集合以找出Top-K，
+ * 后台低优先级线程在CPU和带宽预算内提前转换热门视频的常用比特率。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PrefetchServiceImpl implements PrefetchService {
+
+    private static final Pattern VIDEO_ID_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]{11}$");
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * 预取任务在转换调度器中使用的客户端标识
+     */
+    private static final String PREFETCH_CLIENT_ID = "prefetch";
+
+    private final Mp3ConversionService mp3ConversionService;
+
+    private final CountMinSketch sketch = new CountMinSketch(4, 4096);
+
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+
+    private final Set<String> seeds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mp3-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @Value("${app.prefetch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.prefetch.top-k:20}")
+    private int topK;
+
+    @Value("${app.prefetch.bitrates:128,320}")
+    private List<String> bitrates;
+
+    @Value("${app.prefetch.min-requests:3}")
+    private long minRequests;
+
+    @Value("${app.prefetch.max-load:0.5}")
+    private double maxLoad;
+
+    @Value("${app.prefetch.max-mb-per-hour:500}")
+    private long maxMbPerHour;
+
+    private long budgetWindowStart = System.currentTimeMillis();
+
+    private long budgetBytesUsed;
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void recordRequest(String videoId) {
+        if (videoId == null) {
+            return;
+        }
+        candidates.put(videoId, sketch.add(videoId));
+        if (candidates.size() > topK * 16) {
+            pruneCandidates();
+        }
+    }
+
+    @Override
+    public List<String> getTopVideos(int limit) {
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public int seed(Collection<String> videoIds) {
+        int added = 0;
+        for (String videoId : videoIds) {
+            if (videoId != null && VIDEO_ID_PATTERN.matcher(videoId).matches() && seeds.add(videoId)) {
+                added++;
+            }
+        }
+        log.info("预热集合新增 {} 个视频", added);
+        return added;
+    }
+
+    /**
+     * 定期衰减热度，使过气的视频逐渐退出Top-K
+     */
+    @Scheduled(fixedDelayString = "${app.prefetch.decay-interval:3600000}", initialDelayString = "${app.prefetch.decay-interval:3600000}")
+    public void decay() {
+        sketch.decay();
+        candidates.replaceAll((videoId, count) -> sketch.estimate(videoId));
+        candidates.values().removeIf(count -> count == 0);
+    }
+
+    /**
+     * 定期触发一轮预取，上一轮未结束时跳过
+     */
+    @Scheduled(fixedDelayString = "${app.prefetch.interval:60000}")
+    public void schedulePrefetch() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                runPrefetchCycle();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * 执行一轮预取：先处理预热集合，再处理Top-K热门视频
+     */
+    private void runPrefetchCycle() {
+        Set<String> targets = new LinkedHashSet<>(seeds);
+        for (String videoId : getTopVideos(topK)) {
+            if (candidates.getOrDefault(videoId, 0L) >= minRequests) {
+                targets.add(videoId);
+            }
+        }
+
+        for (String videoId : targets) {
+            for (String bitrate : bitrates) {
+                if (mp3ConversionService.isCached(videoId, bitrate)) {
+                    continue;
+                }
+                if (!withinBudget()) {
+                    log.debug("预取预算已用尽，本轮结束");
+                    return;
+                }
+                try {
+                    Mp3ConversionRequestDto request = new Mp3ConversionRequestDto();
+                    request.setUrl(YouTubeUrlUtil.buildYouTubeUrl(videoId));
+                    request.setBitrate(bitrate);
+                    request.setClientId(PREFETCH_CLIENT_ID);
+                    chargeBudget(mp3ConversionService.downloadAndConvertToMp3(request).getDownloadedBytes());
+                } catch (Exception e) {
+                    log.warn("预取视频失败: videoId={}, bitrate={}", videoId, bitrate, e);
+                }
+            }
+            seeds.remove(videoId);
+        }
+    }
+
+    /**
+     * 检查CPU负载和带宽预算
+     */
+    private synchronized boolean withinBudget() {
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage()
+                / Runtime.getRuntime().availableProcessors();
+        if (load > maxLoad) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - budgetWindowStart >= HOUR_MILLIS) {
+            budgetWindowStart = now;
+            budgetBytesUsed = 0;
+        }
+        return budgetBytesUsed < maxMbPerHour * 1024 * 1024;
+    }
+
+    /**
+     * 计入带宽消耗，按实际下载的源音频字节数计算，命中缓存或别名时不计入
+     */
+    private synchronized void chargeBudget(long bytes) {
+        budgetBytesUsed += bytes;
+    }
+
+    /**
+     * 只保留热度最高的候选视频
+     */
+    private void pruneCandidates() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(candidates.entrySet());
+        if (entries.size() <= topK * 4) {
+            return;
+        }
+        entries.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        for (Map.Entry<String, Long> entry : entries.subList(topK * 4, entries.size())) {
+            candidates.remove(entry.getKey(), entry.getValue());
+        }
+    }
+}
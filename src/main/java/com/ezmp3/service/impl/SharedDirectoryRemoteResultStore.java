@@ -0,0 +1,71 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.service.RemoteResultStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * 基于共享文件系统（NFS、挂载的对象存储等）的远程结果存储
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.remote-store.type", havingValue = "shared-dir")
+public class SharedDirectoryRemoteResultStore implements RemoteResultStore {
+    
+    @Value("${app.remote-store.directory}")
+    private String sharedDirectory;
+    
+    @Override
+    public boolean fetch(String videoId, String bitrate, String clientId, File target) {
+        Path source = resolve(videoId, bitrate);
+        if (!Files.isRegularFile(source)) {
+            return false;
+        }
+        
+        try {
+            Files.copy(source, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            log.info("从共享存储获取MP3: {}", source);
+            return true;
+        } catch (IOException e) {
+            log.warn("从共享存储读取MP3失败: {}", source, e);
+            return false;
+        }
+    }
+    
+    @Override
+    public void publish(String videoId, String bitrate, File file) {
+        Path target = resolve(videoId, bitrate);
+        // 先写入临时文件再原子重命名，避免其他实例读到写了一半的文件
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            Files.copy(file.toPath(), temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("MP3已发布到共享存储: {}", target);
+        } catch (IOException e) {
+            log.warn("发布MP3到共享存储失败: {}", target, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件清理失败不影响结果
+            }
+        }
+    }
+    
+    /**
+     * 按视频ID前两位分目录，避免单个目录文件过多
+     */
+    private Path resolve(String videoId, String bitrate) {
+        return Paths.get(sharedDirectory, videoId.substring(0, 2), videoId + "_" + bitrate + ".mp3");
+    }
+}
@@ -0,0 +1,128 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.EncodingProfile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ws.schild.jave.process.ProcessWrapper;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+/**
+ * 启动预热
+ *
+ * 在ApplicationRunner中执行，Spring Boot在所有runner执行完成后才把就绪状态设为ACCEPTING_TRAFFIC，
+ * 因此预热期间就绪探针（/actuator/health/readiness）返回不可用，负载均衡不会把流量转发过来。
+ * 预热内容：解压并校验JAVE内置的ffmpeg、初始化TLS，并执行一次极短的自检编码，
+ * 让第一个真实请求不再承担这些一次性开销。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    private final Mp3Encoder mp3Encoder;
+
+    @Value("${app.warmup.fail-on-error:true}")
+    private boolean failOnError;
+
+    @Value("${app.download.directory:${java.io.tmpdir}/ezmp3-downloads}")
+    private String downloadDirectory;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        try {
+            verifyFfmpeg();
+            SSLContext.getDefault();
+            selfTestEncode();
+            log.info("启动预热完成，耗时 {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            if (failOnError) {
+                throw new IllegalStateException("启动预热失败", e);
+            }
+            log.error("启动预热失败，继续启动", e);
+        }
+    }
+
+    /**
+     * 解压ffmpeg可执行文件（JAVE首次创建定位器时解压到临时目录）并确认可以运行
+     */
+    private void verifyFfmpeg() throws IOException {
+        DefaultFFMPEGLocator locator = new DefaultFFMPEGLocator();
+        log.info("ffmpeg可执行文件: {}", locator.getExecutablePath());
+
+        ProcessWrapper ffmpeg = locator.createExecutor();
+        try {
+            ffmpeg.addArgument("-version");
+            ffmpeg.execute();
+            String version;
+            try (InputStream in = ffmpeg.getInputStream()) {
+                version = new String(in.readAllBytes()).lines().findFirst().orElse("");
+            }
+            int exitCode = ffmpeg.getProcessExitCode();
+            if (exitCode != 0) {
+                throw new IllegalStateException("ffmpeg无法运行，退出码: " + exitCode);
+            }
+            log.info("ffmpeg校验通过: {}", version);
+        } finally {
+            ffmpeg.destroy();
+        }
+    }
+
+    /**
+     * 编码0.5秒的静音WAV，验证完整的编码链路并预热编码相关的类
+     */
+    private void selfTestEncode() throws Exception {
+        File dir = new File(downloadDirectory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建下载目录: " + downloadDirectory);
+        }
+
+        File wav = File.createTempFile("warmup", ".wav", dir);
+        File mp3 = File.createTempFile("warmup", ".mp3", dir);
+        try {
+            Files.write(wav.toPath(), silentWav(SAMPLE_RATE / 2));
+            mp3Encoder.encode(wav, mp3, 128, EncodingProfile.BALANCED, null, null);
+            if (mp3.length() == 0) {
+                throw new IllegalStateException("自检编码没有输出");
+            }
+            log.info("自检编码通过: 输出 {} 字节", mp3.length());
+        } finally {
+            wav.delete();
+            mp3.delete();
+        }
+    }
+
+    /**
+     * 生成单声道16位PCM静音WAV
+     */
+    private static byte[] silentWav(int samples) {
+        int dataSize = samples * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1)            // PCM
+                .putShort((short) 1)            // 声道数
+                .putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * 2)        // 字节率
+                .putShort((short) 2)            // 块对齐
+                .putShort((short) 16);          // 位深
+        buffer.put("data".getBytes()).putInt(dataSize);
+        return buffer.array();
+    }
+}
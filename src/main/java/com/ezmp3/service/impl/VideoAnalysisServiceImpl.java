@@ -28,6 +28,11 @@ public class VideoAnalysisServiceImpl implements VideoAnalysisService {
         return generateMockAnalysis(videoInfo);
     }
     
+    @Override
+    public String determineAudioType(VideoInfoDto videoInfo) {
+        return determineAudioType(videoInfo.getTags());
+    }
+    
     /**
      * 生成模拟的视频分析结果
      * 
@@ -0,0 +1,228 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.exception.UpstreamUnavailableException;
+import com.ezmp3.util.AdaptiveConcurrencyLimiter;
+import com.ezmp3.util.CircuitBreaker;
+import com.ezmp3.util.TokenBucket;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带配额感知的YouTube Data API调用层
+ *
+ * 按方法统计配额消耗，用令牌桶把配额均匀分摊到一天内，用自适应并发限制和熔断器
+ * 在上游变慢或出错时快速失败，由调用方改用降级数据，避免请求一直等到超时。
+ */
+@Slf4j
+@Component
+public class YouTubeApiClient {
+
+    /**
+     * YouTube Data API的配额在太平洋时间午夜重置
+     */
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");
+
+    /**
+     * 各方法每次调用消耗的配额单位
+     */
+    private static final Map<String, Integer> QUOTA_COST = Map.of(
+            "videos.list", 1,
+            "channels.list", 1,
+            "search.list", 100
+    );
+
+    /**
+     * 可抛出IOException的API调用
+     */
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        T execute() throws IOException;
+    }
+
+    @Value("${app.youtube.quota.daily-units:10000}")
+    private long dailyUnits;
+
+    @Value("${app.youtube.quota.burst-units:200}")
+    private long burstUnits;
+
+    @Value("${app.youtube.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.youtube.breaker.open-millis:30000}")
+    private long openMillis;
+
+    @Value("${app.youtube.concurrency.max:32}")
+    private int maxConcurrency;
+
+    @Value("${app.youtube.concurrency.initial-limit:0}")
+    private int initialConcurrency;
+
+    @Value("${app.youtube.concurrency.target-latency-millis:1500}")
+    private long targetLatencyMillis;
+
+    private TokenBucket tokenBucket;
+
+    private CircuitBreaker circuitBreaker;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final Map<String, LongAdder> unitsByMethod = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    private final LongAdder failedCalls = new LongAdder();
+
+    private volatile LocalDate quotaDay = LocalDate.now(QUOTA_ZONE);
+
+    @PostConstruct
+    public void init() {
+        tokenBucket = new TokenBucket(burstUnits, dailyUnits / 86400d);
+        circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+        // 冷启动时从接近上限的并发开始，上游变慢时再由AIMD减半，避免刚启动的节点把请求推给下载器解析
+        int initialLimit = initialConcurrency > 0 ? initialConcurrency : maxConcurrency;
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(Math.min(4, maxConcurrency), maxConcurrency, initialLimit,
+                targetLatencyMillis);
+    }
+
+    /**
+     * 执行一次API调用
+     *
+     * @param method API方法名，例如videos.list
+     * @param call 实际调用
+     * @return 调用结果
+     * @throws UpstreamUnavailableException 如果被限流、熔断或调用失败
+     */
+    public <T> T execute(String method, ApiCall<T> call) {
+        int cost = QUOTA_COST.getOrDefault(method, 1);
+
+        // 先检查熔断器但不改变状态，令牌和并发名额都拿到后才真正放行，
+        // 否则探测请求被限流拒绝后熔断器会一直停留在HALF_OPEN
+        if (!circuitBreaker.isCallPermitted()) {
+            rejectedCalls.increment();
+            throw new UpstreamUnavailableException("YouTube API熔断中: " + method);
+        }
+        if (!tokenBucket.tryAcquire(cost)) {
+            rejectedCalls.increment();
+            throw new UpstreamUnavailableException("YouTube API配额限流: " + method);
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            tokenBucket.refund(cost);
+            rejectedCalls.increment();
+            throw new UpstreamUnavailableException("YouTube API并发已达上限: " + method);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            // 探测名额已被其他请求占用
+            concurrencyLimiter.cancel();
+            tokenBucket.refund(cost);
+            rejectedCalls.increment();
+            throw new UpstreamUnavailableException("YouTube API熔断中: " + method);
+        }
+
+        recordUnits(method, cost);
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        boolean outcomeRecorded = false;
+        try {
+            T result = call.execute();
+            success = true;
+            circuitBreaker.recordSuccess();
+            outcomeRecorded = true;
+            return result;
+        } catch (GoogleJsonResponseException e) {
+            failedCalls.increment();
+            if (isQuotaExceeded(e)) {
+                long untilReset = Duration.between(ZonedDateTime.now(QUOTA_ZONE), nextQuotaReset()).toMillis();
+                log.error("YouTube API配额已耗尽，熔断至配额重置（{} 分钟后）", untilReset / 60000);
+                circuitBreaker.openFor(untilReset);
+            } else if (e.getStatusCode() >= 500) {
+                circuitBreaker.recordFailure();
+            } else {
+                // 其他4xx说明上游可以正常响应，是请求本身的问题
+                circuitBreaker.recordSuccess();
+            }
+            outcomeRecorded = true;
+            throw new UpstreamUnavailableException("YouTube API调用失败: " + method, e);
+        } catch (IOException e) {
+            failedCalls.increment();
+            circuitBreaker.recordFailure();
+            outcomeRecorded = true;
+            throw new UpstreamUnavailableException("YouTube API调用失败: " + method, e);
+        } finally {
+            // 运行时异常等未记录结果的情况按失败处理，保证探测请求一定会结束HALF_OPEN
+            if (!outcomeRecorded) {
+                failedCalls.increment();
+                circuitBreaker.recordFailure();
+            }
+            concurrencyLimiter.release(System.currentTimeMillis() - start, success);
+        }
+    }
+
+    /**
+     * 获取配额消耗和限流状态
+     */
+    public Map<String, Object> getQuotaMetrics() {
+        rollQuotaDay();
+        Map<String, Long> byMethod = new LinkedHashMap<>();
+        unitsByMethod.forEach((method, units) -> byMethod.put(method, units.sum()));
+        long used = byMethod.values().stream().mapToLong(Long::longValue).sum();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("quotaDay", quotaDay.toString());
+        metrics.put("dailyUnits", dailyUnits);
+        metrics.put("usedUnits", used);
+        metrics.put("unitsByMethod", byMethod);
+        metrics.put("availableBurstUnits", (long) tokenBucket.available());
+        metrics.put("circuitState", circuitBreaker.getState().name());
+        metrics.put("concurrencyLimit", concurrencyLimiter.getLimit());
+        metrics.put("inFlight", concurrencyLimiter.getInFlight());
+        metrics.put("rejectedCalls", rejectedCalls.sum());
+        metrics.put("failedCalls", failedCalls.sum());
+        return metrics;
+    }
+
+    private void recordUnits(String method, int cost) {
+        rollQuotaDay();
+        unitsByMethod.computeIfAbsent(method, key -> new LongAdder()).add(cost);
+    }
+
+    /**
+     * 跨过配额重置时间后清零当日统计
+     */
+    private void rollQuotaDay() {
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        if (!today.equals(quotaDay)) {
+            synchronized (this) {
+                if (!today.equals(quotaDay)) {
+                    unitsByMethod.clear();
+                    quotaDay = today;
+                }
+            }
+        }
+    }
+
+    private static ZonedDateTime nextQuotaReset() {
+        return LocalDate.now(QUOTA_ZONE).plusDays(1).atStartOfDay(QUOTA_ZONE);
+    }
+
+    private static boolean isQuotaExceeded(GoogleJsonResponseException e) {
+        if (e.getStatusCode() != 403 || e.getDetails() == null || e.getDetails().getErrors() == null) {
+            return false;
+        }
+        return e.getDetails().getErrors().stream()
+                .anyMatch(error -> "quotaExceeded".equals(error.getReason())
+                        || "dailyLimitExceeded".equals(error.getReason()));
+    }
+}
@@ -1,12 +1,22 @@
 package com.ezmp3.service.impl;
 
 import com.ezmp3.dto.VideoInfoDto;
+import com.ezmp3.exception.UpstreamUnavailableException;
 import com.ezmp3.service.YouTubeService;
+import com.ezmp3.util.HedgedExecutor;
+import com.github.kiulian.downloader.YoutubeDownloader;
+import com.github.kiulian.downloader.downloader.request.RequestVideoInfo;
+import com.github.kiulian.downloader.downloader.response.Response;
+import com.github.kiulian.downloader.model.videos.VideoDetails;
+import com.github.kiulian.downloader.model.videos.VideoInfo;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.Video;
 import com.google.api.services.youtube.model.VideoListResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -16,30 +26,120 @@ import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * YouTube服务实现类
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class YouTubeServiceImpl implements YouTubeService {
-    
+
+    private final YouTubeApiClient youTubeApiClient;
+
     @Value("${youtube.api.key}")
     private String apiKey;
-    
+
+    @Value("${app.youtube.metadata-cache.size:5000}")
+    private int metadataCacheSize;
+
+    @Value("${app.youtube.metadata-cache.ttl:3600000}")
+    private long metadataCacheTtl;
+
+    @Value("${app.youtube.connect-timeout:3000}")
+    private int connectTimeout;
+
+    @Value("${app.youtube.read-timeout:5000}")
+    private int readTimeout;
+
+    @Value("${app.youtube.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${app.youtube.hedge.source:downloader}")
+    private String hedgeSource;
+
+    @Value("${app.youtube.hedge.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${app.youtube.hedge.min-delay:50}")
+    private long hedgeMinDelay;
+
+    @Value("${app.youtube.hedge.max-delay:2000}")
+    private long hedgeMaxDelay;
+
+    @Value("${app.youtube.hedge.max-ratio:0.05}")
+    private double hedgeMaxRatio;
+
     private YouTube youtubeService;
-    
+
+    private HedgedExecutor hedgedExecutor;
+
+    private ExecutorService hedgeThreadPool;
+
+    private final YoutubeDownloader youtubeDownloader = new YoutubeDownloader();
+
+    /**
+     * 最近获取到的视频信息，过期后仍保留，在API不可用时作为降级数据
+     */
+    private final Map<String, CachedVideoInfo> metadataCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedVideoInfo> eldest) {
+            return size() > metadataCacheSize;
+        }
+    };
+
+    private record CachedVideoInfo(VideoInfoDto videoInfo, long fetchedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        // 启动时创建HTTP传输和API客户端，避免第一个请求承担TLS和客户端初始化的开销
+        try {
+            getYouTubeService();
+        } catch (RuntimeException e) {
+            log.warn("预先初始化YouTube API客户端失败，将在首次请求时重试", e);
+        }
+        
+        if (hedgeEnabled) {
+            hedgeThreadPool = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "youtube-hedge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            hedgedExecutor = new HedgedExecutor(hedgeThreadPool, hedgePercentile, hedgeMinDelay, hedgeMaxDelay, hedgeMaxRatio);
+            log.info("已启用元数据对冲请求: source={}, p{}, 最大比例{}", hedgeSource, hedgePercentile, hedgeMaxRatio);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedgeThreadPool != null) {
+            log.info("元数据对冲统计: 请求{}次, 对冲{}次, 对冲胜出{}次",
+                    hedgedExecutor.getRequests(), hedgedExecutor.getHedgesSent(), hedgedExecutor.getHedgesWon());
+            hedgeThreadPool.shutdownNow();
+        }
+    }
+
     /**
-     * 初始化YouTube API客户端
+     * 获取YouTube API客户端，启动时已初始化，失败时在这里重试
      */
     private synchronized YouTube getYouTubeService() {
         if (youtubeService == null) {
             try {
                 youtubeService = new YouTube.Builder(
-                        GoogleNetHttpTransport.newTrustedTransport(), 
-                        GsonFactory.getDefaultInstance(), 
-                        null)
+                        GoogleNetHttpTransport.newTrustedTransport(),
+                        GsonFactory.getDefaultInstance(),
+                        request -> {
+                            // 限制单次请求耗时，避免上游变慢时请求堆积
+                            request.setConnectTimeout(connectTimeout);
+                            request.setReadTimeout(readTimeout);
+                        })
                         .setApplicationName("ezmp3-backend")
                         .build();
             } catch (GeneralSecurityException | IOException e) {
@@ -49,61 +149,193 @@ public class YouTubeServiceImpl implements YouTubeService {
         }
         return youtubeService;
     }
-    
+
     @Override
     public VideoInfoDto getVideoInfo(String videoId) {
+        CachedVideoInfo cached = getCached(videoId);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt() < metadataCacheTtl) {
+            return cached.videoInfo();
+        }
+
         try {
-            YouTube.Videos.List request = getYouTubeService().videos().list(Collections.singletonList("snippet,contentDetails"));
-            request.setId(Collections.singletonList(videoId));
-            request.setKey(apiKey);
-            
-            VideoListResponse response = request.execute();
-            if (response.getItems() == null || response.getItems().isEmpty()) {
+            VideoInfoDto videoInfo = hedged(() -> fetchVideoInfoFromApi(videoId), () -> {
+                if ("api".equals(hedgeSource)) {
+                    return fetchVideoInfoFromApi(videoId);
+                }
+                VideoInfoDto info = getVideoInfoFromDownloader(videoId);
+                if (info == null) {
+                    throw new UpstreamUnavailableException("下载器未能获取视频信息: " + videoId);
+                }
+                return info;
+            });
+
+            if (videoInfo == null) {
                 log.warn("未找到视频ID为{}的视频信息", videoId);
                 return null;
             }
-            
-            Video video = response.getItems().get(0);
-            
-            // 解析视频时长
-            String durationStr = video.getContentDetails().getDuration();
-            long seconds = Duration.parse(durationStr).getSeconds();
-            
-            List<String> tags = video.getSnippet().getTags();
-            if (tags == null) {
-                tags = new ArrayList<>();
+
+            putCached(videoId, videoInfo);
+            return videoInfo;
+
+        } catch (UpstreamUnavailableException e) {
+            log.warn("YouTube API不可用，使用降级数据: videoId={}, 原因: {}", videoId, e.getMessage());
+            if (cached != null) {
+                return cached.videoInfo();
             }
-            
-            return VideoInfoDto.builder()
-                    .videoId(videoId)
-                    .title(video.getSnippet().getTitle())
-                    .description(video.getSnippet().getDescription())
-                    .thumbnailUrl(video.getSnippet().getThumbnails().getHigh().getUrl())
-                    .channelTitle(video.getSnippet().getChannelTitle())
-                    .publishedAt(video.getSnippet().getPublishedAt().toString())
-                    .duration(seconds)
-                    .tags(tags)
-                    .categories(Collections.singletonList(video.getSnippet().getCategoryId()))
-                    .build();
-            
-        } catch (IOException e) {
-            log.error("获取YouTube视频信息失败", e);
-            throw new RuntimeException("无法获取视频信息", e);
+            VideoInfoDto fallback = getVideoInfoFromDownloader(videoId);
+            if (fallback == null) {
+                throw new RuntimeException("无法获取视频信息", e);
+            }
+            putCached(videoId, fallback);
+            return fallback;
         }
     }
-    
+
     @Override
     public boolean validateVideo(String videoId) {
+        CachedVideoInfo cached = getCached(videoId);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt() < metadataCacheTtl) {
+            return true;
+        }
+
         try {
+            return hedged(() -> existsInApi(videoId), () -> {
+                if ("api".equals(hedgeSource)) {
+                    return existsInApi(videoId);
+                }
+                if (getVideoInfoFromDownloader(videoId) == null) {
+                    throw new UpstreamUnavailableException("下载器未能获取视频信息: " + videoId);
+                }
+                return true;
+            });
+        } catch (UpstreamUnavailableException e) {
+            log.warn("YouTube API不可用，使用降级数据验证视频: videoId={}, 原因: {}", videoId, e.getMessage());
+            if (cached != null) {
+                return true;
+            }
+            VideoInfoDto fallback = getVideoInfoFromDownloader(videoId);
+            if (fallback != null) {
+                putCached(videoId, fallback);
+            }
+            return fallback != null;
+        }
+    }
+
+    /**
+     * 通过Data API获取视频信息
+     *
+     * @param videoId YouTube视频ID
+     * @return 视频信息DTO，视频不存在则返回null
+     */
+    private VideoInfoDto fetchVideoInfoFromApi(String videoId) {
+        VideoListResponse response = youTubeApiClient.execute("videos.list", () -> {
+            YouTube.Videos.List request = getYouTubeService().videos().list(Collections.singletonList("snippet,contentDetails"));
+            request.setId(Collections.singletonList(videoId));
+            request.setKey(apiKey);
+            return request.execute();
+        });
+
+        if (response.getItems() == null || response.getItems().isEmpty()) {
+            return null;
+        }
+        return toVideoInfoDto(videoId, response.getItems().get(0));
+    }
+
+    /**
+     * 通过Data API检查视频是否存在
+     */
+    private boolean existsInApi(String videoId) {
+        VideoListResponse response = youTubeApiClient.execute("videos.list", () -> {
             YouTube.Videos.List request = getYouTubeService().videos().list(Collections.singletonList("id"));
             request.setId(Collections.singletonList(videoId));
             request.setKey(apiKey);
-            
-            VideoListResponse response = request.execute();
-            return response.getItems() != null && !response.getItems().isEmpty();
-        } catch (IOException e) {
-            log.error("验证YouTube视频失败", e);
-            return false;
+            return request.execute();
+        });
+        return response.getItems() != null && !response.getItems().isEmpty();
+    }
+
+    /**
+     * 执行元数据请求，启用对冲时在慢请求上发出对冲请求
+     *
+     * @param primary 主请求
+     * @param hedge 对冲请求
+     * @return 先成功返回的结果
+     * @throws UpstreamUnavailableException 如果请求均失败
+     */
+    private <T> T hedged(Callable<T> primary, Callable<T> hedge) {
+        try {
+            return hedgeEnabled ? hedgedExecutor.execute(primary, hedge) : primary.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UpstreamUnavailableException("获取视频元数据失败", e);
+        }
+    }
+
+    /**
+     * 通过YoutubeDownloader解析视频页面获取视频信息，不消耗API配额
+     *
+     * @param videoId YouTube视频ID
+     * @return 视频信息DTO，获取失败则返回null
+     */
+    private VideoInfoDto getVideoInfoFromDownloader(String videoId) {
+        try {
+            Response<VideoInfo> response = youtubeDownloader.getVideoInfo(new RequestVideoInfo(videoId));
+            if (!response.ok() || response.data() == null) {
+                return null;
+            }
+
+            VideoDetails details = response.data().details();
+            List<String> thumbnails = details.thumbnails();
+            List<String> keywords = details.keywords();
+            return VideoInfoDto.builder()
+                    .videoId(videoId)
+                    .title(details.title())
+                    .description(details.description())
+                    .thumbnailUrl(thumbnails == null || thumbnails.isEmpty() ? null : thumbnails.get(thumbnails.size() - 1))
+                    .channelTitle(details.author())
+                    .duration((long) details.lengthSeconds())
+                    .tags(keywords != null ? new ArrayList<>(keywords) : new ArrayList<>())
+                    .categories(new ArrayList<>())
+                    .build();
+        } catch (Exception e) {
+            log.warn("通过下载器获取视频信息失败: {}", videoId, e);
+            return null;
+        }
+    }
+
+    private VideoInfoDto toVideoInfoDto(String videoId, Video video) {
+        // 解析视频时长
+        String durationStr = video.getContentDetails().getDuration();
+        long seconds = Duration.parse(durationStr).getSeconds();
+
+        List<String> tags = video.getSnippet().getTags();
+        if (tags == null) {
+            tags = new ArrayList<>();
+        }
+
+        return VideoInfoDto.builder()
+                .videoId(videoId)
+                .title(video.getSnippet().getTitle())
+                .description(video.getSnippet().getDescription())
+                .thumbnailUrl(video.getSnippet().getThumbnails().getHigh().getUrl())
+                .channelTitle(video.getSnippet().getChannelTitle())
+                .publishedAt(video.getSnippet().getPublishedAt().toString())
+                .duration(seconds)
+                .tags(tags)
+                .categories(Collections.singletonList(video.getSnippet().getCategoryId()))
+                .build();
+    }
+
+    private CachedVideoInfo getCached(String videoId) {
+        synchronized (metadataCache) {
+            return metadataCache.get(videoId);
+        }
+    }
+
+    private void putCached(String videoId, VideoInfoDto videoInfo) {
+        synchronized (metadataCache) {
+            metadataCache.put(videoId, new CachedVideoInfo(videoInfo, System.currentTimeMillis()));
         }
     }
-} 
\ No newline at end of file
+}
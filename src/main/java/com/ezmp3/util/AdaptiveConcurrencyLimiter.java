@@ -0,0 +1,71 @@
+package com.ezmp3.util;
+
+/**
+ * 自适应并发限制器（AIMD）：请求在目标延迟内成功时缓慢提高上限，
+ * 超时或失败时将上限减半，超出上限的请求立即被拒绝而不是排队等待
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyMillis;
+    private double limit;
+    private int inFlight;
+    
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long targetLatencyMillis) {
+        this(minLimit, maxLimit, minLimit, targetLatencyMillis);
+    }
+    
+    /**
+     * @param minLimit 上限的下界
+     * @param maxLimit 上限的上界
+     * @param initialLimit 初始上限，冷启动时从较高的上限开始，由失败或超时逐步减半
+     * @param targetLatencyMillis 目标延迟
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, long targetLatencyMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+    
+    /**
+     * 尝试占用一个并发名额，不阻塞
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+    
+    /**
+     * 释放名额并根据结果调整上限
+     * @param latencyMillis 请求耗时
+     * @param success 请求是否成功
+     */
+    public synchronized void release(long latencyMillis, boolean success) {
+        inFlight--;
+        if (success && latencyMillis <= targetLatencyMillis) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        } else {
+            limit = Math.max(minLimit, limit / 2);
+        }
+    }
+    
+    /**
+     * 归还没有实际发出的请求占用的名额，不调整上限
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ezmp3.util;
+
+import ws.schild.jave.process.ProcessWrapper;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 音频内容指纹
+ *
+ * 由第一条音频流的数据包哈希和时长组成，用于识别以不同视频ID重复上传的同一段音频。
+ * 哈希由ffmpeg解复用后按数据包计算（-c copy，不解码），因此容器头、moov/sidx索引、
+ * 元数据标签不同的文件只要音频流的编码数据相同就能匹配；重新编码过的音频不会匹配。
+ */
+public class AudioFingerprint {
+
+    private static final String HASH_PREFIX = "SHA256=";
+
+    private AudioFingerprint() {
+    }
+
+    /**
+     * 计算音频文件的指纹
+     *
+     * @param file 下载的音频流文件
+     * @param durationSeconds 音频时长（秒）
+     * @return 指纹字符串，可直接用作缓存键的一部分
+     * @throws IOException 如果ffmpeg无法读取音频流
+     */
+    public static String compute(File file, long durationSeconds) throws IOException {
+        ProcessWrapper ffmpeg = new DefaultFFMPEGLocator().createExecutor();
+        try {
+            ffmpeg.addArgument("-v");
+            ffmpeg.addArgument("error");
+            ffmpeg.addArgument("-i");
+            ffmpeg.addArgument(file.getAbsolutePath());
+            ffmpeg.addArgument("-map");
+            ffmpeg.addArgument("0:a:0");
+            ffmpeg.addArgument("-c");
+            ffmpeg.addArgument("copy");
+            ffmpeg.addArgument("-f");
+            ffmpeg.addArgument("hash");
+            ffmpeg.addArgument("-hash");
+            ffmpeg.addArgument("sha256");
+            ffmpeg.addArgument("-");
+            ffmpeg.execute();
+
+            String output;
+            try (InputStream in = ffmpeg.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+            }
+            int exitCode = ffmpeg.getProcessExitCode();
+            if (exitCode != 0 || !output.startsWith(HASH_PREFIX)) {
+                throw new IOException("无法计算音频流哈希，ffmpeg退出码: " + exitCode + ", 文件: " + file.getName());
+            }
+
+            // 128位足以避免碰撞，缩短缓存文件名
+            String hash = output.substring(HASH_PREFIX.length()).toLowerCase(Locale.ROOT);
+            return hash.substring(0, Math.min(32, hash.length())) + "_" + durationSeconds;
+        } finally {
+            ffmpeg.destroy();
+        }
+    }
+}
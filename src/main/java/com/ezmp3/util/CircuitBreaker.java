@@ -0,0 +1,77 @@
+package com.ezmp3.util;
+
+/**
+ * 熔断器：连续失败达到阈值后打开，冷却期过后放行一个探测请求
+ *
+ * 探测请求放行后熔断器处于HALF_OPEN，直到调用方记录成功或失败，因此每个被放行的请求
+ * 都必须调用recordSuccess或recordFailure。
+ */
+public class CircuitBreaker {
+    
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    
+    /**
+     * @param failureThreshold 触发熔断的连续失败次数
+     * @param openMillis 熔断打开后的冷却时长
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+    
+    /**
+     * 检查请求是否可能被放行，不改变状态
+     *
+     * 用于在占用其他资源（令牌、并发名额）之前快速失败，避免探测请求被其他限流拒绝后
+     * 熔断器停留在HALF_OPEN。
+     */
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+                || (state == State.OPEN && System.currentTimeMillis() >= openUntil);
+    }
+    
+    /**
+     * 是否允许请求通过，冷却结束时放行探测请求并进入HALF_OPEN
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            // 冷却结束，只放行一个探测请求
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+    
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+    
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            openFor(openMillis);
+        }
+    }
+    
+    /**
+     * 强制打开熔断器直到指定时长后，例如配额耗尽时打开到配额重置
+     */
+    public synchronized void openFor(long millis) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + millis;
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ezmp3.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 带衰减的Count-Min Sketch，用于以固定内存估算视频请求频率
+ */
+public class CountMinSketch {
+    
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+    private final long[] seeds;
+    
+    /**
+     * @param depth 哈希函数个数
+     * @param width 每行计数器个数
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.counters = new AtomicLongArray(depth * width);
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B97F4A7C15L * (i + 1);
+        }
+    }
+    
+    /**
+     * 记录一次出现
+     * @param key 键
+     * @return 记录后的频率估计值
+     */
+    public long add(String key) {
+        long h = baseHash(key);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.incrementAndGet(index(i, h)));
+        }
+        return min;
+    }
+    
+    /**
+     * 估算频率
+     * @param key 键
+     * @return 频率估计值（只会偏大，不会偏小）
+     */
+    public long estimate(String key) {
+        long h = baseHash(key);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.get(index(i, h)));
+        }
+        return min;
+    }
+    
+    /**
+     * 所有计数器减半，使旧的热度逐渐失效
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, value -> value >> 1);
+        }
+    }
+    
+    private int index(int row, long hash) {
+        long mixed = (hash ^ seeds[row]) * 0xBF58476D1CE4E5B9L;
+        mixed ^= mixed >>> 31;
+        return row * width + (int) Math.floorMod(mixed, (long) width);
+    }
+    
+    private static long baseHash(String key) {
+        long h = 1125899906842597L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = 31 * h + b;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ezmp3.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可复用的直接内存缓冲池
+ *
+ * 启动时一次性分配固定数量的直接ByteBuffer，之后的音频下载写入和缓存校验都从池中借用，
+ * 稳态下不再为每次转换分配缓冲区。每次I/O操作只持有一个缓冲区，直接内存总量固定为
+ * 缓冲区数量 × 缓冲区大小。池耗尽时短暂等待归还，仍然没有空闲缓冲区则临时分配一个
+ * 堆缓冲区，调用方不会因为缓冲区不足而失败；fallbacks持续增长说明需要增大缓冲区数量。
+ */
+public class DirectBufferPool {
+
+    /**
+     * 使用借用的缓冲区处理一段数据
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(ByteBuffer chunk) throws IOException;
+    }
+
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final int bufferSize;
+    private final int capacity;
+    private final long acquireTimeoutMillis;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    /**
+     * @param capacity 缓冲区数量
+     * @param bufferSize 每个缓冲区的字节数
+     * @param acquireTimeoutMillis 池耗尽时等待归还的最长时间，超时后改用临时堆缓冲区
+     */
+    public DirectBufferPool(int capacity, int bufferSize, long acquireTimeoutMillis) {
+        this.capacity = capacity;
+        this.bufferSize = bufferSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    /**
+     * 借用一个已清空的缓冲区，用完必须调用release归还
+     *
+     * 池耗尽且等待超时（或等待时被中断）时返回临时分配的堆缓冲区，归还时直接丢弃。
+     */
+    public ByteBuffer acquire() {
+        acquisitions.increment();
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            waits.increment();
+            try {
+                buffer = buffers.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (buffer == null) {
+                fallbacks.increment();
+                return ByteBuffer.allocate(bufferSize);
+            }
+        }
+        peakInUse.accumulateAndGet(capacity - buffers.size(), Math::max);
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        // 临时分配的堆缓冲区不放回池中
+        if (buffer != null && buffer.isDirect()) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 按块读取文件，依次交给consumer处理，用于计算校验值
+     */
+    public void readFile(Path file, ChunkConsumer consumer) throws IOException {
+        ByteBuffer buffer = acquire();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                consumer.accept(buffer);
+                buffer.clear();
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 获取缓冲池指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("bufferSize", bufferSize);
+        stats.put("totalBytes", (long) capacity * bufferSize);
+        stats.put("available", buffers.size());
+        stats.put("peakInUse", peakInUse.get());
+        stats.put("acquisitions", acquisitions.sum());
+        stats.put("waits", waits.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        return stats;
+    }
+}
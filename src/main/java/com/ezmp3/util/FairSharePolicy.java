@@ -0,0 +1,116 @@
+package com.ezmp3.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按开销和客户端权重排序的公平选择策略，转换调度器和任务队列共用
+ *
+ * 候选任务的排序值为 开销 / (1 + 老化速率 × 已等待秒数)，值越小越先执行。老化按比例缩小开销，
+ * 等待时间相同时长任务与短任务的差距按相同倍数缩小，因此长任务等待的时间只取决于开销之比，
+ * 而不是开销之差。等待超过max-wait的任务视为饥饿，按等待时间先后优先执行，
+ * 保证持续有短任务到达时长任务也能在有限时间内得到名额。
+ */
+public class FairSharePolicy {
+
+    private final Map<String, Double> clientWeights;
+    private final double agingRate;
+    private final long maxWaitMillis;
+
+    /**
+     * @param clientWeights 客户端权重，未配置的客户端权重为1
+     * @param agingRate 每等待1秒排序值分母增加的量
+     * @param maxWaitMillis 饥饿阈值（毫秒），0表示不启用
+     */
+    public FairSharePolicy(Map<String, Double> clientWeights, double agingRate, long maxWaitMillis) {
+        this.clientWeights = Map.copyOf(clientWeights);
+        this.agingRate = agingRate;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * 解析客户端权重配置
+     *
+     * 格式: client1:0.5,key:abc:2（客户端标识本身可能包含冒号，以最后一个冒号分隔权重）
+     */
+    public static Map<String, Double> parseClientWeights(String config) {
+        Map<String, Double> weights = new HashMap<>();
+        if (config == null) {
+            return weights;
+        }
+        for (String item : config.split(",")) {
+            int colon = item.lastIndexOf(':');
+            if (colon > 0) {
+                weights.put(item.substring(0, colon).trim(), Double.parseDouble(item.substring(colon + 1).trim()));
+            }
+        }
+        return weights;
+    }
+
+    public double weight(String clientId) {
+        return clientWeights.getOrDefault(clientId, 1.0);
+    }
+
+    /**
+     * 按客户端权重折算的任务开销
+     *
+     * @param clientId 客户端标识
+     * @param expectedSeconds 预计音频时长（秒）
+     */
+    public double cost(String clientId, long expectedSeconds) {
+        return Math.max(1, expectedSeconds) / weight(clientId);
+    }
+
+    /**
+     * 老化后的排序值，越小越先执行
+     *
+     * @param cost 开销，小于0时按0处理
+     * @param waitedMillis 已等待时间
+     */
+    public double score(double cost, long waitedMillis) {
+        return Math.max(0, cost) / (1 + agingRate * Math.max(0, waitedMillis) / 1000.0);
+    }
+
+    public boolean isStarving(long waitedMillis) {
+        return maxWaitMillis > 0 && waitedMillis >= maxWaitMillis;
+    }
+
+    /**
+     * 选出下一个执行的候选
+     *
+     * @param candidates 候选任务
+     * @param cost 候选任务的开销（可包含该客户端已占用的开销）
+     * @param waitedMillis 候选任务已等待的时间
+     * @return 下一个执行的任务，没有候选时返回null
+     */
+    public <T> T select(Collection<T> candidates, ToDoubleFunction<T> cost, ToLongFunction<T> waitedMillis) {
+        T next = null;
+        boolean nextStarving = false;
+        double best = Double.MAX_VALUE;
+        long nextWaited = -1;
+        for (T candidate : candidates) {
+            long waited = waitedMillis.applyAsLong(candidate);
+            boolean starving = isStarving(waited);
+            double score = score(cost.applyAsDouble(candidate), waited);
+            boolean better;
+            if (next == null || starving != nextStarving) {
+                better = next == null || starving;
+            } else if (starving) {
+                // 饥饿的任务之间按等待时间先后执行
+                better = waited > nextWaited;
+            } else {
+                better = score < best || (score == best && waited > nextWaited);
+            }
+            if (better) {
+                next = candidate;
+                nextStarving = starving;
+                best = score;
+                nextWaited = waited;
+            }
+        }
+        return next;
+    }
+}
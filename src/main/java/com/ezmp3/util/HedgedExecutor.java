@@ -0,0 +1,133 @@
+package com.ezmp3.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求执行器
+ *
+ * 主请求在最近延迟的指定分位数内未返回时发出对冲请求，先成功返回的结果胜出。
+ * 对冲次数受预算限制：每个请求积累一定比例的对冲额度，每次对冲消耗一个额度。
+ */
+public class HedgedExecutor {
+    
+    private final ExecutorService executor;
+    private final LatencyTracker latencyTracker = new LatencyTracker(512);
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final double maxHedgeRatio;
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private double budget;
+    
+    /**
+     * @param executor 执行主请求和对冲请求的线程池
+     * @param percentile 触发对冲的延迟分位数，例如95
+     * @param minDelayMillis 最小对冲延迟
+     * @param maxDelayMillis 最大对冲延迟
+     * @param maxHedgeRatio 对冲请求占总请求的最大比例，例如0.05
+     */
+    public HedgedExecutor(ExecutorService executor, double percentile, long minDelayMillis,
+                          long maxDelayMillis, double maxHedgeRatio) {
+        this.executor = executor;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+    
+    /**
+     * 执行请求，必要时发出对冲请求
+     * 
+     * @param primary 主请求
+     * @param hedge 对冲请求
+     * @return 先成功返回的结果
+     * @throws Exception 两个请求都失败时抛出主请求的异常
+     */
+    public <T> T execute(Callable<T> primary, Callable<T> hedge) throws Exception {
+        requests.increment();
+        addBudget();
+        
+        long start = System.currentTimeMillis();
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        Future<T> primaryFuture = completion.submit(primary);
+        Future<T> hedgeFuture = null;
+        
+        try {
+            long delay = Math.max(minDelayMillis, Math.min(maxDelayMillis,
+                    latencyTracker.percentile(percentile, maxDelayMillis)));
+            Future<T> done = completion.poll(delay, TimeUnit.MILLISECONDS);
+            if (done == null && tryConsumeBudget()) {
+                hedgeFuture = completion.submit(hedge);
+                hedgesSent.increment();
+            }
+            
+            int pending = hedgeFuture == null ? 1 : 2;
+            Exception primaryError = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    // 对冲胜出时主请求耗时至少为当前耗时，按此计入
+                    latencyTracker.record(System.currentTimeMillis() - start);
+                    if (done != primaryFuture) {
+                        hedgesWon.increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    // 对冲请求失败时继续等待主请求，两者都失败则抛出主请求的异常
+                    if (done == primaryFuture) {
+                        primaryError = e.getCause() instanceof Exception ex ? ex : e;
+                    }
+                }
+                done = null;
+            }
+            throw primaryError;
+        } finally {
+            primaryFuture.cancel(true);
+            if (hedgeFuture != null) {
+                hedgeFuture.cancel(true);
+            }
+        }
+    }
+    
+    public long getRequests() {
+        return requests.sum();
+    }
+    
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+    
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+    
+    public long getHedgeDelayMillis() {
+        return Math.max(minDelayMillis, Math.min(maxDelayMillis, latencyTracker.percentile(percentile, maxDelayMillis)));
+    }
+    
+    private synchronized void addBudget() {
+        // 额度上限为10，避免长时间空闲后集中对冲
+        budget = Math.min(10, budget + maxHedgeRatio);
+    }
+    
+    private synchronized boolean tryConsumeBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+}
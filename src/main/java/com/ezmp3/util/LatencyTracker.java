@@ -0,0 +1,51 @@
+package com.ezmp3.util;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口延迟统计，用于估算最近请求的延迟分位数
+ */
+public class LatencyTracker {
+    
+    private final long[] samples;
+    private int count;
+    private int next;
+    
+    /**
+     * @param windowSize 保留的最近样本数
+     */
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+    
+    /**
+     * 记录一次请求耗时
+     * @param millis 耗时（毫秒）
+     */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+    
+    /**
+     * 计算延迟分位数
+     * @param percentile 分位数，取值0-100
+     * @param defaultValue 样本不足时返回的默认值
+     * @return 延迟（毫秒）
+     */
+    public long percentile(double percentile, long defaultValue) {
+        long[] snapshot;
+        synchronized (this) {
+            if (count < 20) {
+                return defaultValue;
+            }
+            snapshot = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(snapshot);
+        int index = (int) Math.ceil(percentile / 100 * snapshot.length) - 1;
+        return snapshot[Math.max(0, Math.min(index, snapshot.length - 1))];
+    }
+}
@@ -0,0 +1,312 @@
+package com.ezmp3.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分片MP4（DASH m4a）的分段索引
+ *
+ * 解析文件头部的sidx box，得到每个分段（moof+mdat）的字节范围和时间范围，
+ * 从而只下载覆盖指定时间段的分段。box结构不完整或字段越界时抛出IOException，
+ * 由调用方改为完整下载。
+ */
+public class Mp4SegmentIndex {
+
+    private static final int INITIAL_READ = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 按字节范围读取远程文件的函数接口
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        /**
+         * @param offset 起始字节
+         * @param length 读取长度
+         * @return 读取到的字节，文件较短时可能少于length
+         */
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    /**
+     * 一个分段的字节范围和时间范围
+     */
+    public record Segment(long offset, long size, double startSeconds, double durationSeconds) {
+    }
+
+    private final byte[] initSegment;
+    private final List<Segment> segments;
+
+    private Mp4SegmentIndex(byte[] initSegment, List<Segment> segments) {
+        this.initSegment = initSegment;
+        this.segments = segments;
+    }
+
+    /**
+     * 初始化段（ftyp+moov）的字节数，位于文件开头
+     */
+    public long getInitSize() {
+        return initSegment.length;
+    }
+
+    /**
+     * 初始化段的内容，解析sidx时已经读取，不需要再次下载
+     */
+    public byte[] getInitSegment() {
+        return initSegment.clone();
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * 获取覆盖指定时间段的连续分段
+     *
+     * @param startSeconds 开始时间
+     * @param endSeconds 结束时间
+     * @return 分段列表，没有重叠时返回空列表
+     */
+    public List<Segment> segmentsCovering(double startSeconds, double endSeconds) {
+        List<Segment> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            double segmentEnd = segment.startSeconds() + segment.durationSeconds();
+            if (segmentEnd > startSeconds && segment.startSeconds() < endSeconds) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取并解析文件头部的sidx
+     *
+     * @param reader 远程文件读取器
+     * @return 分段索引，文件不是带sidx的分片MP4时返回null
+     * @throws IOException 如果读取失败或box结构损坏
+     */
+    public static Mp4SegmentIndex parse(RangeReader reader) throws IOException {
+        try {
+            return parseHeader(reader);
+        } catch (RuntimeException e) {
+            // 字段越界、长度溢出等损坏的box统一按读取失败处理
+            throw new IOException("无法解析分段索引: " + e, e);
+        }
+    }
+
+    private static Mp4SegmentIndex parseHeader(RangeReader reader) throws IOException {
+        byte[] header = reader.read(0, INITIAL_READ);
+        int pos = 0;
+        while (true) {
+            if (pos + 8 > header.length) {
+                header = readMore(reader, header, pos + 16);
+                if (header == null || pos + 8 > header.length) {
+                    return null;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            long size = Integer.toUnsignedLong(buffer.getInt(pos));
+            String type = new String(header, pos + 4, 4, StandardCharsets.US_ASCII);
+            if (size == 1) {
+                if (pos + 16 > header.length) {
+                    header = readMore(reader, header, pos + 16);
+                    if (header == null) {
+                        return null;
+                    }
+                    buffer = ByteBuffer.wrap(header);
+                }
+                size = buffer.getLong(pos + 8);
+            }
+            if (size < 8) {
+                throw new IOException("box长度无效: " + type + " " + size);
+            }
+
+            if ("sidx".equals(type)) {
+                if (pos + size > header.length) {
+                    header = readMore(reader, header, pos + size);
+                    if (header == null) {
+                        return null;
+                    }
+                }
+                return parseSidx(header, pos, size);
+            }
+            if ("moof".equals(type) || "mdat".equals(type)) {
+                // 已进入媒体数据，说明没有sidx
+                return null;
+            }
+            if (pos + size > MAX_HEADER_SIZE) {
+                return null;
+            }
+            pos += (int) size;
+        }
+    }
+
+    private static byte[] readMore(RangeReader reader, byte[] current, long needed) throws IOException {
+        if (needed > MAX_HEADER_SIZE) {
+            return null;
+        }
+        byte[] more = reader.read(0, (int) Math.max(needed, current.length * 2L));
+        return more.length > current.length ? more : null;
+    }
+
+    private static Mp4SegmentIndex parseSidx(byte[] header, int pos, long size) throws IOException {
+        // limit设在sidx末尾，字段越界时抛出IndexOutOfBoundsException而不是读到后面的box
+        ByteBuffer buffer = ByteBuffer.wrap(header, 0, (int) (pos + size));
+        int p = pos + 8;
+        int version = buffer.get(p) & 0xFF;
+        p += 4; // version + flags
+        p += 4; // reference_ID
+        long timescale = Integer.toUnsignedLong(buffer.getInt(p));
+        p += 4;
+        if (timescale == 0) {
+            throw new IOException("sidx的timescale为0");
+        }
+
+        long earliestPresentationTime;
+        long firstOffset;
+        if (version == 0) {
+            earliestPresentationTime = Integer.toUnsignedLong(buffer.getInt(p));
+            firstOffset = Integer.toUnsignedLong(buffer.getInt(p + 4));
+            p += 8;
+        } else {
+            earliestPresentationTime = buffer.getLong(p);
+            firstOffset = buffer.getLong(p + 8);
+            p += 16;
+        }
+        p += 2; // reserved
+        int referenceCount = buffer.getShort(p) & 0xFFFF;
+        p += 2;
+        if (p + 12L * referenceCount > pos + size) {
+            throw new IOException("sidx的引用数超出box长度: " + referenceCount);
+        }
+
+        List<Segment> segments = new ArrayList<>(referenceCount);
+        long offset = pos + size + firstOffset;
+        long time = earliestPresentationTime;
+        for (int i = 0; i < referenceCount; i++) {
+            int reference = buffer.getInt(p);
+            long referencedSize = reference & 0x7FFFFFFFL;
+            long duration = Integer.toUnsignedLong(buffer.getInt(p + 4));
+            p += 12;
+
+            // 引用类型为1表示指向下一级sidx，音频流中不会出现
+            if ((reference >>> 31) == 1) {
+                return null;
+            }
+            if (referencedSize == 0) {
+                throw new IOException("sidx引用的分段长度为0");
+            }
+            segments.add(new Segment(offset, referencedSize,
+                    (double) time / timescale, (double) duration / timescale));
+            offset += referencedSize;
+            time += duration;
+        }
+        return new Mp4SegmentIndex(Arrays.copyOf(header, pos), segments);
+    }
+
+    /**
+     * 把下载片段中每个moof的tfdt减去第一个分段的解码时间，使截取后的文件时间轴从0开始
+     *
+     * @param file 由初始化段和若干连续分段拼接成的文件
+     * @param fragmentsStart 第一个分段在文件中的偏移
+     * @throws IOException 如果读写失败或moof结构损坏
+     */
+    public static void rebaseDecodeTimes(Path file, long fragmentsStart) throws IOException {
+        try {
+            rebaseFragments(file, fragmentsStart);
+        } catch (RuntimeException e) {
+            throw new IOException("无法修正分段解码时间: " + e, e);
+        }
+    }
+
+    private static void rebaseFragments(Path file, long fragmentsStart) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            long pos = fragmentsStart;
+            long base = -1;
+            while (pos + 8 <= channel.size()) {
+                header.clear();
+                channel.read(header, pos);
+                long size = Integer.toUnsignedLong(header.getInt(0));
+                String type = new String(header.array(), 4, 4, StandardCharsets.US_ASCII);
+                if (size == 1) {
+                    size = header.getLong(8);
+                } else if (size == 0) {
+                    size = channel.size() - pos;
+                }
+                if (size < 8) {
+                    return;
+                }
+
+                if ("moof".equals(type) && size <= MAX_HEADER_SIZE) {
+                    ByteBuffer moof = ByteBuffer.allocate((int) size);
+                    channel.read(moof, pos);
+                    base = rebaseMoof(moof, base);
+                    moof.rewind();
+                    channel.write(moof, pos);
+                }
+                pos += size;
+            }
+        }
+    }
+
+    /**
+     * 修改moof中的tfdt
+     *
+     * @return 基准解码时间（第一次遇到tfdt时确定）
+     */
+    private static long rebaseMoof(ByteBuffer moof, long base) {
+        int p = 8;
+        while (p + 8 <= moof.limit()) {
+            int size = moof.getInt(p);
+            String type = boxType(moof, p);
+            if (size < 8) {
+                break;
+            }
+            if ("traf".equals(type)) {
+                int q = p + 8;
+                while (q + 8 <= p + size) {
+                    int childSize = moof.getInt(q);
+                    if (childSize < 8) {
+                        break;
+                    }
+                    if ("tfdt".equals(boxType(moof, q))) {
+                        int version = moof.get(q + 8) & 0xFF;
+                        long decodeTime = version == 1
+                                ? moof.getLong(q + 12)
+                                : Integer.toUnsignedLong(moof.getInt(q + 12));
+                        if (base < 0) {
+                            base = decodeTime;
+                        }
+                        long rebased = Math.max(0, decodeTime - base);
+                        if (version == 1) {
+                            moof.putLong(q + 12, rebased);
+                        } else {
+                            moof.putInt(q + 12, (int) rebased);
+                        }
+                    }
+                    q += childSize;
+                }
+            }
+            p += size;
+        }
+        return base;
+    }
+
+    private static String boxType(ByteBuffer buffer, int pos) {
+        byte[] type = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            type[i] = buffer.get(pos + 4 + i);
+        }
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ezmp3.util;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 合并相同键的并发调用
+ *
+ * 同一个键同时只执行一次，执行期间到达的调用等待并共享同一个结果（或异常）；
+ * 执行结束后键即被移除，之后的调用会重新执行。
+ */
+public class SingleFlight<T> {
+
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行调用，相同键已有调用在执行时等待它的结果
+     *
+     * @param key 合并的键
+     * @param call 实际执行的调用
+     * @return 调用结果
+     * @throws Exception 调用抛出的异常，等待者收到相同的异常
+     */
+    public T execute(String key, Callable<T> call) throws Exception {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            T result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 正在执行的调用数
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <T> T await(CompletableFuture<T> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
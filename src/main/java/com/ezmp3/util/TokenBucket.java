@@ -0,0 +1,60 @@
+package com.ezmp3.util;
+
+/**
+ * 令牌桶限流器
+ */
+public class TokenBucket {
+    
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+    
+    /**
+     * @param capacity 桶容量（允许的突发量）
+     * @param refillPerSecond 每秒补充的令牌数
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * 尝试获取令牌，不阻塞
+     * @param permits 令牌数
+     * @return 如果获取成功则返回true
+     */
+    public synchronized boolean tryAcquire(double permits) {
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+    
+    /**
+     * 归还已获取但没有实际使用的令牌，不超过桶容量
+     * @param permits 令牌数
+     */
+    public synchronized void refund(double permits) {
+        refill();
+        tokens = Math.min(capacity, tokens + permits);
+    }
+    
+    /**
+     * 当前可用令牌数
+     */
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
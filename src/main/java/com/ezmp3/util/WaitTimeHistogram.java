@@ -0,0 +1,55 @@
+package com.ezmp3.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的等待时间直方图
+ */
+public class WaitTimeHistogram {
+    
+    private static final long[] BUCKET_MILLIS = {100, 500, 1000, 5000, 10000, 30000, 60000, 300000};
+    
+    private final LongAdder[] buckets = new LongAdder[BUCKET_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    
+    public WaitTimeHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * 记录一次等待时间
+     * @param millis 等待时间（毫秒）
+     */
+    public void record(long millis) {
+        int i = 0;
+        while (i < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        totalMillis.add(millis);
+    }
+    
+    /**
+     * 导出直方图，键为桶的上限（毫秒），最后一个桶为+Inf
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+            counts.put("le_" + BUCKET_MILLIS[i], buckets[i].sum());
+        }
+        counts.put("le_inf", buckets[BUCKET_MILLIS.length].sum());
+        
+        long n = count.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", n);
+        result.put("avgMillis", n == 0 ? 0 : totalMillis.sum() / n);
+        result.put("buckets", counts);
+        return result;
+    }
+}
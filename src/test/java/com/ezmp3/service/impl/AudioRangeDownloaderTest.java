@@ -0,0 +1,139 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.util.DirectBufferPool;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 使用本地桩服务器模拟音频地址
+ */
+class AudioRangeDownloaderTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    private String url;
+
+    private byte[] audio = new byte[0];
+
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/audio.m4a", exchange -> {
+            exchange.sendResponseHeaders(status.get(), status.get() == 200 ? audio.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (status.get() == 200) {
+                    out.write(audio);
+                }
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/audio.m4a";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void downloadsWholeFileThroughPool() throws IOException {
+        audio = new byte[3 * BUFFER_SIZE + 123];
+        for (int i = 0; i < audio.length; i++) {
+            audio[i] = (byte) i;
+        }
+        DirectBufferPool pool = new DirectBufferPool(2, BUFFER_SIZE, 100);
+        File target = tempDir.resolve("full.m4a").toFile();
+
+        long bytes = new AudioRangeDownloader(pool).download(url, target);
+
+        assertEquals(audio.length, bytes);
+        assertArrayEquals(audio, Files.readAllBytes(target.toPath()));
+        assertEquals(2, pool.getStats().get("available"));
+        assertEquals(0L, pool.getStats().get("fallbacks"));
+    }
+
+    @Test
+    void errorStatusFails() {
+        status.set(403);
+        DirectBufferPool pool = new DirectBufferPool(2, BUFFER_SIZE, 100);
+
+        assertThrows(IOException.class,
+                () -> new AudioRangeDownloader(pool).download(url, tempDir.resolve("full.m4a").toFile()));
+        assertEquals(2, pool.getStats().get("available"));
+    }
+
+    /**
+     * 一次转换在JVM内的数据路径：下载源音频，交给ffmpeg（独立进程，这里略过），结果放入缓存并校验。
+     * 统计所有线程（包括桩服务器）的堆分配，稳态下每次转换只分配连接和文件句柄等少量对象，远小于音频大小
+     */
+    @Test
+    void steadyStateConversionAllocatesNoBuffers() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        audio = new byte[8 * 1024 * 1024];
+        DirectBufferPool pool = new DirectBufferPool(4, BUFFER_SIZE, 100);
+        AudioRangeDownloader downloader = new AudioRangeDownloader(pool);
+        Mp3CacheServiceImpl cache = new Mp3CacheServiceImpl(pool);
+        ReflectionTestUtils.setField(cache, "cacheDirectory", tempDir.resolve("cache").toString());
+        ReflectionTestUtils.setField(cache, "maxSizeMb", 1024L);
+        cache.init();
+        Path work = Files.createDirectories(tempDir.resolve("work"));
+
+        int iterations = 30;
+        for (int i = 0; i < iterations; i++) {
+            convert(downloader, cache, work, i);
+        }
+
+        long before = allocatedBytes(threads);
+        for (int i = 0; i < iterations; i++) {
+            convert(downloader, cache, work, i);
+        }
+        long perConversion = (allocatedBytes(threads) - before) / iterations;
+
+        assertTrue(perConversion < 256 * 1024, "每次转换8MB音频分配了 " + perConversion + " 字节");
+        assertEquals(0L, pool.getStats().get("fallbacks"));
+    }
+
+    private void convert(AudioRangeDownloader downloader, Mp3CacheServiceImpl cache, Path work, int i)
+            throws IOException {
+        File downloaded = work.resolve("source.m4a").toFile();
+        downloader.download(url, downloaded);
+        cache.put("video" + (i % 4) + "_128", downloaded);
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+}
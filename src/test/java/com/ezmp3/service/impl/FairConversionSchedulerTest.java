@@ -0,0 +1,160 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.service.ConversionScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairConversionSchedulerTest {
+
+    private static FairConversionScheduler scheduler(int maxConcurrent, double agingRate, long maxWait, long queueTimeout) {
+        FairConversionScheduler scheduler = new FairConversionScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(scheduler, "agingRate", agingRate);
+        ReflectionTestUtils.setField(scheduler, "maxWait", maxWait);
+        ReflectionTestUtils.setField(scheduler, "queueTimeout", queueTimeout);
+        ReflectionTestUtils.setField(scheduler, "queueWaitRatio", 0.5);
+        ReflectionTestUtils.setField(scheduler, "clientWeightsConfig", "");
+        scheduler.init();
+        return scheduler;
+    }
+
+    /**
+     * 让一个长任务在持续到达的短任务中排队，返回它拿到名额时已完成的短任务数
+     *
+     * 每个短任务来自不同的客户端，执行20ms；任何时刻都有新到的短任务在排队。
+     */
+    private static int runLongJobAmongShortJobs(FairConversionScheduler scheduler, long timeoutMillis) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger shortDone = new AtomicInteger();
+        AtomicInteger clients = new AtomicInteger();
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                producers.submit(() -> {
+                    while (!stop.get()) {
+                        try (ConversionScheduler.Permit ignored =
+                                     scheduler.acquire("ip:10.0.0." + clients.incrementAndGet(), 180)) {
+                            Thread.sleep(20);
+                            shortDone.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            // 等短任务形成稳定的排队
+            while (scheduler.getQueueLength() < 3) {
+                Thread.sleep(5);
+            }
+
+            ExecutorService longRunner = Executors.newSingleThreadExecutor();
+            try {
+                Future<Integer> longJob = longRunner.submit(() -> {
+                    try (ConversionScheduler.Permit ignored = scheduler.acquire("ip:10.0.0.250", 7200)) {
+                        return shortDone.get();
+                    }
+                });
+                return longJob.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                longRunner.shutdownNow();
+            }
+        } finally {
+            stop.set(true);
+            producers.shutdownNow();
+            producers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void longJobIsGrantedWhileShortJobsKeepArriving() throws Exception {
+        // 饥饿阈值300ms：长任务最多排在阈值之后的下一个空出的名额
+        FairConversionScheduler scheduler = scheduler(1, 0.1, 300, 60_000);
+
+        int shortBefore = runLongJobAmongShortJobs(scheduler, 5_000);
+
+        assertTrue(shortBefore > 0, "短任务应先执行");
+    }
+
+    @Test
+    void proportionalAgingAloneLetsLongJobThrough() throws Exception {
+        // 关闭饥饿阈值，开销之比为40，aging-rate=100时约0.39秒后长任务排到最前
+        FairConversionScheduler scheduler = scheduler(1, 100, 0, 60_000);
+
+        int shortBefore = runLongJobAmongShortJobs(scheduler, 5_000);
+
+        assertTrue(shortBefore > 0, "短任务应先执行");
+    }
+
+    @Test
+    void shortJobsRunBeforeQueuedLongJob() throws Exception {
+        FairConversionScheduler scheduler = scheduler(1, 0.1, 0, 60_000);
+        ConversionScheduler.Permit running = scheduler.acquire("a", 60);
+        List<String> order = new ArrayList<>();
+        CountDownLatch queued = new CountDownLatch(2);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> longJob = pool.submit(() -> {
+                queued.countDown();
+                try (ConversionScheduler.Permit ignored = scheduler.acquire("b", 7200)) {
+                    synchronized (order) {
+                        order.add("long");
+                    }
+                }
+                return null;
+            });
+            while (scheduler.getQueueLength() < 1) {
+                Thread.sleep(5);
+            }
+            Future<?> shortJob = pool.submit(() -> {
+                queued.countDown();
+                try (ConversionScheduler.Permit ignored = scheduler.acquire("c", 60)) {
+                    synchronized (order) {
+                        order.add("short");
+                    }
+                }
+                return null;
+            });
+            while (scheduler.getQueueLength() < 2) {
+                Thread.sleep(5);
+            }
+
+            running.close();
+            longJob.get(5, TimeUnit.SECONDS);
+            shortJob.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of("short", "long"), order);
+    }
+
+    @Test
+    void queueTimeoutScalesWithExpectedDuration() throws Exception {
+        FairConversionScheduler scheduler = scheduler(1, 0.1, 0, 100);
+
+        assertEquals(100, scheduler.queueTimeout(0));
+        assertEquals(100 + 3_600_000, scheduler.queueTimeout(7200));
+
+        // 基础超时很短时短任务排队超时
+        ConversionScheduler.Permit running = scheduler.acquire("a", 60);
+        try {
+            assertThrows(IllegalStateException.class, () -> scheduler.acquire("b", 0));
+            assertEquals(0, scheduler.getQueueLength());
+        } finally {
+            running.close();
+        }
+    }
+}
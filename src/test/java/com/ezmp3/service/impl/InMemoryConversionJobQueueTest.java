@@ -0,0 +1,124 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.model.ConversionJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 租用顺序和取消
+ */
+class InMemoryConversionJobQueueTest {
+
+    private static final long LEASE = 60_000;
+
+    private static InMemoryConversionJobQueue queue(double agingRate, long maxWait) {
+        InMemoryConversionJobQueue queue = new InMemoryConversionJobQueue();
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "retryBackoff", 5000L);
+        ReflectionTestUtils.setField(queue, "retention", 3_600_000L);
+        ReflectionTestUtils.setField(queue, "agingRate", agingRate);
+        ReflectionTestUtils.setField(queue, "maxWait", maxWait);
+        ReflectionTestUtils.setField(queue, "clientWeightsConfig", "");
+        queue.initPolicy();
+        return queue;
+    }
+
+    private static String submit(InMemoryConversionJobQueue queue, String clientId, long expectedSeconds) {
+        return queue.submit(ConversionJob.builder()
+                .videoId("v-" + clientId)
+                .clientId(clientId)
+                .expectedSeconds(expectedSeconds)
+                .build());
+    }
+
+    /**
+     * 单个worker依次执行：每次先提交一个新的短任务，再租用并完成一个任务，返回长任务被租用前完成的短任务数
+     */
+    private static int leaseUntil(InMemoryConversionJobQueue queue, String longJobId, int maxRounds) throws InterruptedException {
+        for (int round = 0; round < maxRounds; round++) {
+            submit(queue, "ip:10.0.0." + round, 180);
+            ConversionJob leased = queue.lease("worker", LEASE);
+            if (leased.getId().equals(longJobId)) {
+                return round;
+            }
+            assertTrue(queue.complete(leased.getId(), "worker", "/tmp/" + leased.getId() + ".mp3", "BALANCED", 0));
+            Thread.sleep(10);
+        }
+        return -1;
+    }
+
+    @Test
+    void shortJobsAreLeasedBeforeLongJob() {
+        InMemoryConversionJobQueue queue = queue(0.1, 0);
+        submit(queue, "a", 7200);
+        String shortJob = submit(queue, "b", 60);
+
+        assertEquals(shortJob, queue.lease("worker", LEASE).getId());
+    }
+
+    @Test
+    void longJobIsLeasedWhileShortJobsKeepArriving() throws InterruptedException {
+        // 饥饿阈值100ms：持续到达的短任务不能无限推迟长任务
+        InMemoryConversionJobQueue queue = queue(0.1, 100);
+        String longJob = submit(queue, "long", 7200);
+
+        int round = leaseUntil(queue, longJob, 200);
+
+        assertTrue(round > 0 && round < 50, "长任务在第" + round + "轮被租用");
+    }
+
+    @Test
+    void proportionalAgingAloneLetsLongJobThrough() throws InterruptedException {
+        // 关闭饥饿阈值，开销之比为40，aging-rate=200时约0.2秒后长任务排到最前
+        InMemoryConversionJobQueue queue = queue(200, 0);
+        String longJob = submit(queue, "long", 7200);
+
+        int round = leaseUntil(queue, longJob, 200);
+
+        assertTrue(round > 0 && round < 100, "长任务在第" + round + "轮被租用");
+    }
+
+    @Test
+    void cancelledPendingJobIsNeverLeased() {
+        InMemoryConversionJobQueue queue = queue(0.1, 0);
+        String jobId = submit(queue, "a", 60);
+
+        assertTrue(queue.cancel(jobId));
+
+        assertNull(queue.lease("worker", LEASE));
+        assertEquals(ConversionJob.Status.CANCELLED, queue.get(jobId).getStatus());
+        assertFalse(queue.cancel(jobId));
+    }
+
+    @Test
+    void cancelledLeasedJobDiscardsWorkerResult() {
+        InMemoryConversionJobQueue queue = queue(0.1, 0);
+        String jobId = submit(queue, "a", 60);
+        assertEquals(jobId, queue.lease("worker", LEASE).getId());
+
+        assertTrue(queue.cancel(jobId));
+
+        assertFalse(queue.heartbeat(jobId, "worker", LEASE));
+        assertFalse(queue.complete(jobId, "worker", "/tmp/result.mp3", "BALANCED", 100));
+        ConversionJob job = queue.get(jobId);
+        assertEquals(ConversionJob.Status.CANCELLED, job.getStatus());
+        assertNull(job.getResultFile());
+    }
+
+    @Test
+    void finishedJobCannotBeCancelled() {
+        InMemoryConversionJobQueue queue = queue(0.1, 0);
+        String jobId = submit(queue, "a", 60);
+        queue.lease("worker", LEASE);
+        queue.complete(jobId, "worker", "/tmp/result.mp3", "BALANCED", 100);
+
+        assertFalse(queue.cancel(jobId));
+        assertEquals(ConversionJob.Status.DONE, queue.get(jobId).getStatus());
+        assertEquals(1, queue.getStats().get("done"));
+    }
+}
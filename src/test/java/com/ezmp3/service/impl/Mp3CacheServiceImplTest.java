@@ -0,0 +1,157 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.util.DirectBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 索引日志的崩溃恢复：重放、损坏尾部、引用计数和压缩
+ */
+class Mp3CacheServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path cacheDir() {
+        return tempDir.resolve("cache");
+    }
+
+    private Path indexLog() {
+        return cacheDir().resolve("index.log");
+    }
+
+    /**
+     * 在同一个缓存目录上启动新实例，不调用上一个实例的shutdown，相当于进程崩溃后重启
+     */
+    private Mp3CacheServiceImpl start() throws IOException {
+        Mp3CacheServiceImpl cache = new Mp3CacheServiceImpl(new DirectBufferPool(2, 4096, 10));
+        ReflectionTestUtils.setField(cache, "cacheDirectory", cacheDir().toString());
+        ReflectionTestUtils.setField(cache, "maxSizeMb", 1024L);
+        cache.init();
+        return cache;
+    }
+
+    private File source(String name, String content) throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("work"));
+        return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    @Test
+    void entriesSurviveCrash() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        File cached = cache.put("abc_128", source("a.mp3", "audio-a"));
+
+        Mp3CacheServiceImpl restarted = start();
+
+        assertEquals(cached, restarted.lookup("abc_128"));
+        assertEquals("audio-a", Files.readString(cached.toPath()));
+    }
+
+    @Test
+    void tornAndCorruptTailRecordsAreDropped() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        cache.put("abc_128", source("a.mp3", "audio-a"));
+        cache.put("def_128", source("d.mp3", "audio-d"));
+
+        String lastLine = Files.readAllLines(indexLog()).get(1);
+        // 校验值被篡改的完整记录，以及写了一半的尾行
+        String corrupt = lastLine.replace("def_128", "xyz_128");
+        Files.writeString(indexLog(), corrupt + "\n" + lastLine.substring(0, lastLine.length() / 2),
+                StandardOpenOption.APPEND);
+
+        Mp3CacheServiceImpl restarted = start();
+
+        assertNotNull(restarted.lookup("abc_128"));
+        assertNotNull(restarted.lookup("def_128"));
+        assertFalse(restarted.contains("xyz_128"));
+        // 重启时日志被重写为快照，损坏的记录不再保留
+        assertEquals(2, Files.readAllLines(indexLog()).size());
+    }
+
+    @Test
+    void deleteRecordsAreReplayed() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        cache.put("abc_128", source("a.mp3", "audio-a"));
+        cache.put("def_128", source("d.mp3", "audio-d"));
+        cache.remove("abc_128");
+
+        Mp3CacheServiceImpl restarted = start();
+
+        assertFalse(restarted.contains("abc_128"));
+        assertTrue(restarted.contains("def_128"));
+    }
+
+    @Test
+    void aliasReferencesAreRestoredOnReplay() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        File shared = cache.put("abc_128", source("a.mp3", "audio-a"));
+        assertEquals(shared, cache.alias("fp_128", "abc_128"));
+
+        Mp3CacheServiceImpl restarted = start();
+
+        // 重放后文件仍有两个引用，移除其中一个不能删除文件
+        restarted.remove("abc_128");
+        assertTrue(shared.isFile());
+        assertEquals(shared, restarted.lookup("fp_128"));
+
+        restarted.remove("fp_128");
+        assertFalse(shared.isFile());
+    }
+
+    @Test
+    void replacedEntryReleasesOldFile() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        File first = cache.put("abc_128", source("a.mp3", "audio-a"));
+        File second = cache.put("abc_128", source("b.mp3", "audio-b"));
+
+        assertFalse(first.isFile());
+        assertTrue(second.isFile());
+        assertEquals(second, start().lookup("abc_128"));
+    }
+
+    @Test
+    void missingFilesAreDroppedOnReplay() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        File cached = cache.put("abc_128", source("a.mp3", "audio-a"));
+        Files.delete(cached.toPath());
+
+        assertNull(start().lookup("abc_128"));
+    }
+
+    @Test
+    void compactionRewritesLogAsSnapshot() throws IOException {
+        Mp3CacheServiceImpl cache = start();
+        for (int i = 0; i < 20; i++) {
+            cache.put("abc_128", source("a" + i + ".mp3", "audio-" + i));
+        }
+        cache.put("def_128", source("d.mp3", "audio-d"));
+        assertEquals(21, Files.readAllLines(indexLog()).size());
+
+        cache.compact();
+
+        List<String> lines = Files.readAllLines(indexLog());
+        assertEquals(2, lines.size());
+        assertFalse(Files.exists(cacheDir().resolve("index.log.tmp")));
+
+        // 压缩后追加的记录同样能被重放
+        cache.remove("def_128");
+        Mp3CacheServiceImpl restarted = start();
+        assertEquals("audio-19", Files.readString(restarted.lookup("abc_128").toPath()));
+        assertFalse(restarted.contains("def_128"));
+    }
+}
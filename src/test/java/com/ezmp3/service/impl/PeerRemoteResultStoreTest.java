@@ -0,0 +1,166 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.controller.SharedSecretInterceptor;
+import com.ezmp3.util.ConsistentHashRing;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地桩服务器模拟归属节点
+ */
+class PeerRemoteResultStoreTest {
+
+    private static final String SELF = "http://self.invalid/api";
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    private String peer;
+
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startPeer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/internal/mp3/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name.toLowerCase(), values.get(0)));
+            lastHeaders.put("uri", exchange.getRequestURI().toString());
+            byte[] body = "mp3-from-owner".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        peer = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @AfterEach
+    void stopPeer() {
+        server.stop(0);
+    }
+
+    private PeerRemoteResultStore store(String otherNode) {
+        PeerRemoteResultStore store = new PeerRemoteResultStore();
+        ReflectionTestUtils.setField(store, "nodes", List.of(SELF, otherNode));
+        ReflectionTestUtils.setField(store, "self", SELF);
+        ReflectionTestUtils.setField(store, "clusterToken", "secret");
+        ReflectionTestUtils.setField(store, "virtualNodes", 160);
+        ReflectionTestUtils.setField(store, "conversionTimeout", 5000L);
+        ReflectionTestUtils.setField(store, "connectTimeout", 1000L);
+        ReflectionTestUtils.setField(store, "downMillis", 60_000L);
+        store.init();
+        return store;
+    }
+
+    /**
+     * 找一个归属于指定节点的视频ID
+     */
+    private static String videoOwnedBy(String owner, String otherNode) {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(SELF, otherNode), 160);
+        for (int i = 0; ; i++) {
+            String videoId = String.format("vid%08d", i);
+            if (ring.getOwner(videoId).equals(owner)) {
+                return videoId;
+            }
+        }
+    }
+
+    @Test
+    void fetchesFromOwnerWithClusterHeaders() throws IOException {
+        String videoId = videoOwnedBy(peer, peer);
+        File target = tempDir.resolve("out.mp3").toFile();
+
+        assertTrue(store(peer).fetch(videoId, "128", "key:abc", target));
+
+        assertEquals("mp3-from-owner", Files.readString(target.toPath()));
+        assertEquals("/api/v1/internal/mp3/" + videoId + "?bitrate=128", lastHeaders.get("uri"));
+        assertEquals(SELF, lastHeaders.get(PeerRemoteResultStore.FORWARDED_HEADER.toLowerCase()));
+        assertEquals("key:abc", lastHeaders.get(PeerRemoteResultStore.CLIENT_ID_HEADER.toLowerCase()));
+        assertEquals("secret", lastHeaders.get(SharedSecretInterceptor.TOKEN_HEADER.toLowerCase()));
+    }
+
+    @Test
+    void ownVideosAreNotForwarded() {
+        String videoId = videoOwnedBy(SELF, peer);
+
+        assertFalse(store(peer).fetch(videoId, "128", "key:abc", tempDir.resolve("out.mp3").toFile()));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    void errorStatusDeletesPartialFile() {
+        status.set(500);
+        String videoId = videoOwnedBy(peer, peer);
+        File target = tempDir.resolve("out.mp3").toFile();
+        PeerRemoteResultStore store = store(peer);
+
+        assertFalse(store.fetch(videoId, "128", "key:abc", target));
+
+        assertFalse(target.exists());
+        // 归属节点能响应，只是转换失败，不标记为不可用
+        assertFalse(store.isDown(peer));
+    }
+
+    @Test
+    void unreachableOwnerIsSkippedUntilDownPeriodEnds() throws IOException {
+        String deadPeer;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPeer = "http://127.0.0.1:" + socket.getLocalPort() + "/api";
+        }
+        PeerRemoteResultStore store = store(deadPeer);
+        String videoId = videoOwnedBy(deadPeer, deadPeer);
+
+        assertFalse(store.fetch(videoId, "128", "key:abc", tempDir.resolve("out.mp3").toFile()));
+        assertTrue(store.isDown(deadPeer));
+
+        // 标记期内不再尝试连接
+        long start = System.nanoTime();
+        assertFalse(store.fetch(videoId, "128", "key:abc", tempDir.resolve("out2.mp3").toFile()));
+        assertTrue(System.nanoTime() - start < 50_000_000L);
+    }
+
+    @Test
+    void downMarkExpires() throws Exception {
+        String deadPeer;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPeer = "http://127.0.0.1:" + socket.getLocalPort() + "/api";
+        }
+        PeerRemoteResultStore store = store(deadPeer);
+        ReflectionTestUtils.setField(store, "downMillis", 100L);
+
+        assertFalse(store.fetch(videoOwnedBy(deadPeer, deadPeer), "128", "key:abc", tempDir.resolve("out.mp3").toFile()));
+        assertTrue(store.isDown(deadPeer));
+
+        Thread.sleep(150);
+        assertFalse(store.isDown(deadPeer));
+    }
+}
@@ -0,0 +1,63 @@
+package com.ezmp3.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedDirectoryRemoteResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SharedDirectoryRemoteResultStore store() {
+        SharedDirectoryRemoteResultStore store = new SharedDirectoryRemoteResultStore();
+        ReflectionTestUtils.setField(store, "sharedDirectory", tempDir.resolve("shared").toString());
+        return store;
+    }
+
+    @Test
+    void missReturnsFalse() {
+        File target = tempDir.resolve("out.mp3").toFile();
+
+        assertFalse(store().fetch("dQw4w9WgXcQ", "128", "ip:10.0.0.1", target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    void publishedResultIsVisibleToOtherInstances() throws IOException {
+        File local = Files.writeString(tempDir.resolve("local.mp3"), "mp3-data").toFile();
+        store().publish("dQw4w9WgXcQ", "128", local);
+
+        // 另一个实例只共享目录
+        File target = tempDir.resolve("out.mp3").toFile();
+        assertTrue(store().fetch("dQw4w9WgXcQ", "128", "ip:10.0.0.1", target));
+        assertEquals("mp3-data", Files.readString(target.toPath()));
+        assertFalse(store().fetch("dQw4w9WgXcQ", "320", "ip:10.0.0.1", tempDir.resolve("other.mp3").toFile()));
+    }
+
+    @Test
+    void publishLeavesNoTempFiles() throws IOException {
+        File local = Files.writeString(tempDir.resolve("local.mp3"), "v1").toFile();
+        store().publish("dQw4w9WgXcQ", "128", local);
+        Files.writeString(local.toPath(), "v2");
+        store().publish("dQw4w9WgXcQ", "128", local);
+
+        try (Stream<Path> files = Files.list(tempDir.resolve("shared").resolve("dQ"))) {
+            assertEquals(1, files.count());
+        }
+        assertTrue(local.isFile());
+        File target = tempDir.resolve("out.mp3").toFile();
+        assertTrue(store().fetch("dQw4w9WgXcQ", "128", "ip:10.0.0.1", target));
+        assertEquals("v2", Files.readString(target.toPath()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.ezmp3.service.impl;
+
+import com.ezmp3.exception.UpstreamUnavailableException;
+import com.ezmp3.util.AdaptiveConcurrencyLimiter;
+import com.ezmp3.util.CircuitBreaker;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 熔断器在各种调用结果下都不能停留在HALF_OPEN
+ */
+class YouTubeApiClientTest {
+
+    /**
+     * 连续失败1次即熔断、冷却时间为0的客户端，方便直接进入探测阶段
+     */
+    private static YouTubeApiClient client(long burstUnits, long dailyUnits) {
+        YouTubeApiClient client = new YouTubeApiClient();
+        ReflectionTestUtils.setField(client, "dailyUnits", dailyUnits);
+        ReflectionTestUtils.setField(client, "burstUnits", burstUnits);
+        ReflectionTestUtils.setField(client, "failureThreshold", 1);
+        ReflectionTestUtils.setField(client, "openMillis", 0L);
+        ReflectionTestUtils.setField(client, "maxConcurrency", 16);
+        ReflectionTestUtils.setField(client, "targetLatencyMillis", 1500L);
+        client.init();
+        return client;
+    }
+
+    private static String circuitState(YouTubeApiClient client) {
+        Map<String, Object> metrics = client.getQuotaMetrics();
+        return (String) metrics.get("circuitState");
+    }
+
+    private static long availableUnits(YouTubeApiClient client) {
+        return (Long) client.getQuotaMetrics().get("availableBurstUnits");
+    }
+
+    private static void openBreaker(YouTubeApiClient client) {
+        assertThrows(UpstreamUnavailableException.class, () -> client.execute("videos.list", () -> {
+            throw new IOException("connection reset");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN.name(), circuitState(client));
+    }
+
+    @Test
+    void probeRejectedByTokenBucketKeepsBreakerOpen() {
+        // 只有1个令牌且不补充：第一次调用耗尽令牌并触发熔断，探测请求被令牌桶拒绝
+        YouTubeApiClient client = client(1, 0);
+        openBreaker(client);
+
+        assertThrows(UpstreamUnavailableException.class, () -> client.execute("videos.list", () -> "ok"));
+
+        assertEquals(CircuitBreaker.State.OPEN.name(), circuitState(client));
+    }
+
+    @Test
+    void probeWithRuntimeExceptionReopensBreaker() {
+        YouTubeApiClient client = client(100, 0);
+        openBreaker(client);
+
+        assertThrows(IllegalStateException.class, () -> client.execute("videos.list", () -> {
+            throw new IllegalStateException("unexpected");
+        }));
+
+        assertEquals(CircuitBreaker.State.OPEN.name(), circuitState(client));
+    }
+
+    @Test
+    void probeWithClientErrorClosesBreaker() {
+        YouTubeApiClient client = client(100, 0);
+        openBreaker(client);
+
+        GoogleJsonResponseException notFound = new GoogleJsonResponseException(
+                new HttpResponseException.Builder(404, "Not Found", new HttpHeaders()), null);
+        assertThrows(UpstreamUnavailableException.class, () -> client.execute("videos.list", () -> {
+            throw notFound;
+        }));
+
+        assertEquals(CircuitBreaker.State.CLOSED.name(), circuitState(client));
+    }
+
+    @Test
+    void successfulProbeClosesBreaker() {
+        YouTubeApiClient client = client(100, 0);
+        openBreaker(client);
+
+        assertEquals("ok", client.execute("videos.list", () -> "ok"));
+
+        assertEquals(CircuitBreaker.State.CLOSED.name(), circuitState(client));
+    }
+
+    @Test
+    void coldClientStartsAtMaxConcurrency() {
+        assertEquals(16, client(100, 0).getQuotaMetrics().get("concurrencyLimit"));
+    }
+
+    @Test
+    void initialLimitIsConfigurable() {
+        YouTubeApiClient client = new YouTubeApiClient();
+        ReflectionTestUtils.setField(client, "burstUnits", 100L);
+        ReflectionTestUtils.setField(client, "failureThreshold", 1);
+        ReflectionTestUtils.setField(client, "maxConcurrency", 16);
+        ReflectionTestUtils.setField(client, "initialConcurrency", 8);
+        ReflectionTestUtils.setField(client, "targetLatencyMillis", 1500L);
+        client.init();
+
+        assertEquals(8, client.getQuotaMetrics().get("concurrencyLimit"));
+    }
+
+    @Test
+    void breakerRejectionRefundsToken() {
+        YouTubeApiClient client = client(5, 0);
+        // 模拟两个请求同时通过isCallPermitted、探测名额已被另一个请求占用
+        ReflectionTestUtils.setField(client, "circuitBreaker", new CircuitBreaker(1, 0) {
+            @Override
+            public synchronized boolean isCallPermitted() {
+                return true;
+            }
+
+            @Override
+            public synchronized boolean allowRequest() {
+                return false;
+            }
+        });
+
+        assertThrows(UpstreamUnavailableException.class, () -> client.execute("videos.list", () -> "ok"));
+
+        assertEquals(5, availableUnits(client));
+        assertEquals(0, client.getQuotaMetrics().get("inFlight"));
+    }
+
+    @Test
+    void concurrencyRejectionRefundsToken() {
+        YouTubeApiClient client = client(5, 0);
+        AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter(1, 1, 1500);
+        saturated.tryAcquire();
+        ReflectionTestUtils.setField(client, "concurrencyLimiter", saturated);
+
+        assertThrows(UpstreamUnavailableException.class, () -> client.execute("videos.list", () -> "ok"));
+
+        assertEquals(5, availableUnits(client));
+    }
+}
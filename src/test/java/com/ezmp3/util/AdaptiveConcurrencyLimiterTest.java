@@ -0,0 +1,52 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void startsAtInitialLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 32, 32, 1500);
+
+        for (int i = 0; i < 32; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertEquals(32, new AdaptiveConcurrencyLimiter(4, 32, 100, 1500).getLimit());
+        assertEquals(4, new AdaptiveConcurrencyLimiter(4, 32, 1, 1500).getLimit());
+    }
+
+    @Test
+    void slowOrFailedCallsHalveLimitDownToMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 32, 32, 1500);
+
+        limiter.tryAcquire();
+        limiter.release(5000, true);
+        assertEquals(16, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(10, false);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void cancelDoesNotAdjustLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 32, 8, 1500);
+
+        limiter.tryAcquire();
+        limiter.cancel();
+
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,58 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://a:8080/api", "http://b:8080/api", "http://c:8080/api");
+
+    @Test
+    void emptyRingHasNoOwner() {
+        assertNull(new ConsistentHashRing(List.of(), 160).getOwner("dQw4w9WgXcQ"));
+    }
+
+    @Test
+    void ownerIsIndependentOfNodeOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 160);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 160);
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "video" + i;
+            assertEquals(ring.getOwner(key), reordered.getOwner(key));
+        }
+    }
+
+    @Test
+    void keysAreSpreadAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            counts.merge(ring.getOwner("video" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7000 && count < 13000, "分布不均: " + counts));
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 160);
+        ConsistentHashRing shrunk = new ConsistentHashRing(NODES.subList(0, 2), 160);
+
+        for (int i = 0; i < 10000; i++) {
+            String key = "video" + i;
+            String owner = ring.getOwner(key);
+            if (!owner.equals(NODES.get(2))) {
+                assertEquals(owner, shrunk.getOwner(key));
+            }
+        }
+    }
+}
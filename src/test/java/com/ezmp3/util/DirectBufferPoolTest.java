@@ -0,0 +1,90 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DirectBufferPoolTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void exhaustedPoolFallsBackToHeapBuffer() {
+        DirectBufferPool pool = new DirectBufferPool(1, BUFFER_SIZE, 1);
+        ByteBuffer pooled = pool.acquire();
+
+        ByteBuffer fallback = pool.acquire();
+
+        assertTrue(pooled.isDirect());
+        assertFalse(fallback.isDirect());
+        assertEquals(BUFFER_SIZE, fallback.capacity());
+        assertEquals(1L, pool.getStats().get("fallbacks"));
+
+        // 临时缓冲区不会放回池中
+        pool.release(fallback);
+        assertEquals(0, pool.getStats().get("available"));
+        pool.release(pooled);
+        assertEquals(1, pool.getStats().get("available"));
+    }
+
+    @Test
+    void readFileVisitsWholeFile() throws Exception {
+        byte[] data = new byte[3 * BUFFER_SIZE + 123];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path file = Files.write(tempDir.resolve("data.bin"), data);
+        DirectBufferPool pool = new DirectBufferPool(2, BUFFER_SIZE, 100);
+
+        CRC32 expected = new CRC32();
+        expected.update(data);
+        CRC32 actual = new CRC32();
+        pool.readFile(file, actual::update);
+
+        assertEquals(expected.getValue(), actual.getValue());
+        assertEquals(2, pool.getStats().get("available"));
+    }
+
+    /**
+     * 稳态下读取文件不再分配缓冲区：每次调用的堆分配量只包括打开通道的少量对象，远小于一个缓冲区
+     */
+    @Test
+    void steadyStateReadAllocatesNoBuffers() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Path file = Files.write(tempDir.resolve("audio.bin"), new byte[8 * 1024 * 1024]);
+        DirectBufferPool pool = new DirectBufferPool(4, BUFFER_SIZE, 100);
+        CRC32 crc = new CRC32();
+        DirectBufferPool.ChunkConsumer consumer = crc::update;
+
+        for (int i = 0; i < 200; i++) {
+            pool.readFile(file, consumer);
+        }
+
+        int iterations = 200;
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            pool.readFile(file, consumer);
+        }
+        long perRead = (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        assertTrue(perRead < 4096, "每次读取8MB文件分配了 " + perRead + " 字节");
+        assertEquals(0L, pool.getStats().get("fallbacks"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairSharePolicyTest {
+
+    /**
+     * 候选任务：开销和已等待时间
+     */
+    private record Candidate(String name, double cost, long waitedMillis) {
+    }
+
+    private static String select(FairSharePolicy policy, Candidate... candidates) {
+        Candidate next = policy.select(List.of(candidates), Candidate::cost, Candidate::waitedMillis);
+        return next != null ? next.name() : null;
+    }
+
+    @Test
+    void parsesWeightsSplittingOnLastColon() {
+        Map<String, Double> weights = FairSharePolicy.parseClientWeights("prefetch:0.25, key:abc:2 ,broken,");
+
+        assertEquals(Map.of("prefetch", 0.25, "key:abc", 2.0), weights);
+        assertEquals(Map.of(), FairSharePolicy.parseClientWeights(""));
+    }
+
+    @Test
+    void costIsScaledByWeight() {
+        FairSharePolicy policy = new FairSharePolicy(Map.of("prefetch", 0.25), 0.1, 0);
+
+        assertEquals(720, policy.cost("prefetch", 180), 1e-9);
+        assertEquals(180, policy.cost("ip:10.0.0.1", 180), 1e-9);
+        assertEquals(1, policy.cost("ip:10.0.0.1", 0), 1e-9);
+    }
+
+    @Test
+    void prefersCheaperJobWhenWaitsAreEqual() {
+        FairSharePolicy policy = new FairSharePolicy(Map.of(), 0.1, 0);
+
+        assertEquals("short", select(policy, new Candidate("long", 7200, 0), new Candidate("short", 180, 0)));
+        assertNull(select(policy));
+    }
+
+    @Test
+    void agingIsProportionalToCost() {
+        FairSharePolicy policy = new FairSharePolicy(Map.of(), 1.0, 0);
+
+        // 开销之比为40，等待超过39秒后长任务排在新到的短任务之前
+        assertEquals("short", select(policy, new Candidate("long", 7200, 38_000), new Candidate("short", 180, 0)));
+        assertEquals("long", select(policy, new Candidate("long", 7200, 40_000), new Candidate("short", 180, 0)));
+    }
+
+    @Test
+    void starvingJobsGoFirstInArrivalOrder() {
+        FairSharePolicy policy = new FairSharePolicy(Map.of(), 0.0, 5_000);
+
+        assertTrue(policy.isStarving(5_000));
+        assertEquals("long", select(policy, new Candidate("short", 1, 0), new Candidate("long", 7200, 5_000)));
+        assertEquals("oldest", select(policy,
+                new Candidate("older", 10, 6_000), new Candidate("oldest", 7200, 9_000), new Candidate("new", 1, 0)));
+    }
+
+    @Test
+    void negativeCostCountsAsZeroAndTiesFavourLongerWait() {
+        FairSharePolicy policy = new FairSharePolicy(Map.of(), 0.1, 0);
+
+        assertEquals("older", select(policy, new Candidate("newer", -5, 100), new Candidate("older", 0, 200)));
+    }
+}
@@ -0,0 +1,234 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 用手工构造的分片MP4头部验证sidx解析
+ */
+class Mp4SegmentIndexTest {
+
+    private static final long TIMESCALE = 44100;
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(8 + payload.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] ftyp() {
+        return box("ftyp", "M4A \0\0\0\0isomiso2".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] moov(int payloadSize) {
+        return box("moov", new byte[payloadSize]);
+    }
+
+    /**
+     * 构造sidx
+     *
+     * @param sizes 每个分段的字节数
+     * @param durations 每个分段的时长（timescale单位）
+     */
+    private static byte[] sidx(int version, long timescale, long earliestPresentationTime, long firstOffset,
+                               int[] sizes, long[] durations) {
+        ByteBuffer payload = ByteBuffer.allocate(4 + 4 + 4 + (version == 0 ? 8 : 16) + 4 + 12 * sizes.length);
+        payload.putInt(version << 24);
+        payload.putInt(1);                         // reference_ID
+        payload.putInt((int) timescale);
+        if (version == 0) {
+            payload.putInt((int) earliestPresentationTime);
+            payload.putInt((int) firstOffset);
+        } else {
+            payload.putLong(earliestPresentationTime);
+            payload.putLong(firstOffset);
+        }
+        payload.putShort((short) 0);
+        payload.putShort((short) sizes.length);
+        for (int i = 0; i < sizes.length; i++) {
+            payload.putInt(sizes[i]);
+            payload.putInt((int) durations[i]);
+            payload.putInt(0x90000000);            // starts_with_SAP
+        }
+        return box("sidx", payload.array());
+    }
+
+    private static Mp4SegmentIndex.RangeReader reader(byte[] file) {
+        return (offset, length) -> Arrays.copyOfRange(file, (int) offset, (int) Math.min(file.length, offset + length));
+    }
+
+    @Test
+    void parsesVersion0Sidx() throws IOException {
+        byte[] init = concat(ftyp(), moov(200));
+        byte[] sidx = sidx(0, TIMESCALE, 0, 0, new int[]{1000, 2000, 1500},
+                new long[]{10 * TIMESCALE, 10 * TIMESCALE, 5 * TIMESCALE});
+        byte[] file = concat(init, sidx, new byte[4500]);
+
+        Mp4SegmentIndex index = Mp4SegmentIndex.parse(reader(file));
+
+        assertNotNull(index);
+        assertEquals(init.length, index.getInitSize());
+        assertArrayEquals(init, index.getInitSegment());
+        long first = init.length + sidx.length;
+        assertEquals(List.of(
+                new Mp4SegmentIndex.Segment(first, 1000, 0, 10),
+                new Mp4SegmentIndex.Segment(first + 1000, 2000, 10, 10),
+                new Mp4SegmentIndex.Segment(first + 3000, 1500, 20, 5)), index.getSegments());
+    }
+
+    @Test
+    void parsesVersion1SidxWith64BitFields() throws IOException {
+        long timescale = 48000;
+        long earliest = (1L << 33);                 // 超过32位的起始时间
+        byte[] init = concat(ftyp(), moov(100));
+        byte[] sidx = sidx(1, timescale, earliest, 64, new int[]{800, 900},
+                new long[]{2 * timescale, 3 * timescale});
+        byte[] file = concat(init, sidx, new byte[64 + 1700]);
+
+        Mp4SegmentIndex index = Mp4SegmentIndex.parse(reader(file));
+
+        assertNotNull(index);
+        long first = init.length + sidx.length + 64;
+        double start = (double) earliest / timescale;
+        assertEquals(List.of(
+                new Mp4SegmentIndex.Segment(first, 800, start, 2),
+                new Mp4SegmentIndex.Segment(first + 800, 900, start + 2, 3)), index.getSegments());
+    }
+
+    @Test
+    void selectsSegmentsCoveringRange() throws IOException {
+        byte[] file = concat(ftyp(), moov(10), sidx(0, TIMESCALE, 0, 0, new int[]{10, 20, 30, 40},
+                new long[]{10 * TIMESCALE, 10 * TIMESCALE, 10 * TIMESCALE, 10 * TIMESCALE}));
+        Mp4SegmentIndex index = Mp4SegmentIndex.parse(reader(file));
+
+        List<Mp4SegmentIndex.Segment> covering = index.segmentsCovering(12, 21);
+
+        assertEquals(2, covering.size());
+        assertEquals(10.0, covering.get(0).startSeconds());
+        assertEquals(20.0, covering.get(1).startSeconds());
+        assertEquals(List.of(), index.segmentsCovering(40, 50));
+    }
+
+    @Test
+    void readsBeyondInitialChunkForLargeMoov() throws IOException {
+        byte[] init = concat(ftyp(), moov(200 * 1024));
+        byte[] file = concat(init, sidx(0, TIMESCALE, 0, 0, new int[]{100}, new long[]{TIMESCALE}), new byte[100]);
+
+        Mp4SegmentIndex index = Mp4SegmentIndex.parse(reader(file));
+
+        assertNotNull(index);
+        assertEquals(init.length, index.getInitSize());
+    }
+
+    @Test
+    void returnsNullWithoutSidx() throws IOException {
+        byte[] file = concat(ftyp(), moov(100), box("moof", new byte[16]), box("mdat", new byte[64]));
+
+        assertNull(Mp4SegmentIndex.parse(reader(file)));
+    }
+
+    @Test
+    void rejectsReferenceCountBeyondBox() {
+        byte[] sidx = sidx(0, TIMESCALE, 0, 0, new int[]{100, 100}, new long[]{TIMESCALE, TIMESCALE});
+        // 引用数改为3，但box中只有两条引用
+        ByteBuffer.wrap(sidx).putShort(8 + 4 + 4 + 4 + 8 + 2, (short) 3);
+        byte[] file = concat(ftyp(), moov(10), sidx, new byte[300]);
+
+        assertThrows(IOException.class, () -> Mp4SegmentIndex.parse(reader(file)));
+    }
+
+    @Test
+    void ignoresSidxCutOffByEndOfFile() throws IOException {
+        byte[] sidx = sidx(0, TIMESCALE, 0, 0, new int[]{100}, new long[]{TIMESCALE});
+        byte[] file = concat(ftyp(), moov(10), Arrays.copyOf(sidx, sidx.length - 6));
+
+        assertNull(Mp4SegmentIndex.parse(reader(file)));
+    }
+
+    @Test
+    void rejectsZeroTimescale() {
+        byte[] file = concat(ftyp(), sidx(0, 0, 0, 0, new int[]{100}, new long[]{TIMESCALE}));
+
+        assertThrows(IOException.class, () -> Mp4SegmentIndex.parse(reader(file)));
+    }
+
+    @Test
+    void rejectsInvalidBoxSize() {
+        byte[] file = concat(ftyp(), ByteBuffer.allocate(16).putInt(4).put("moov".getBytes(StandardCharsets.US_ASCII)).array());
+
+        assertThrows(IOException.class, () -> Mp4SegmentIndex.parse(reader(file)));
+    }
+
+    private static byte[] fragment(int tfdtVersion, long decodeTime) {
+        ByteBuffer tfdt = ByteBuffer.allocate(tfdtVersion == 1 ? 12 : 8);
+        tfdt.putInt(tfdtVersion << 24);
+        if (tfdtVersion == 1) {
+            tfdt.putLong(decodeTime);
+        } else {
+            tfdt.putInt((int) decodeTime);
+        }
+        byte[] traf = box("traf", concat(box("tfhd", new byte[8]), box("tfdt", tfdt.array())));
+        return concat(box("moof", concat(box("mfhd", new byte[8]), traf)), box("mdat", new byte[32]));
+    }
+
+    private static long decodeTime(byte[] file, int fragmentOffset, int tfdtVersion) {
+        // moof头8 + mfhd 16 + traf头8 + tfhd 16 + tfdt头8 + version/flags 4
+        int p = fragmentOffset + 8 + 16 + 8 + 16 + 8 + 4;
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        return tfdtVersion == 1 ? buffer.getLong(p) : Integer.toUnsignedLong(buffer.getInt(p));
+    }
+
+    @Test
+    void rebases64BitDecodeTimes() throws IOException {
+        byte[] init = concat(ftyp(), moov(50));
+        byte[] first = fragment(1, 5_000_000_000L);
+        Path file = Files.write(tempDir.resolve("clip.m4a"), concat(init, first, fragment(1, 5_000_441_000L)));
+
+        Mp4SegmentIndex.rebaseDecodeTimes(file, init.length);
+
+        byte[] rebased = Files.readAllBytes(file);
+        assertEquals(0, decodeTime(rebased, init.length, 1));
+        assertEquals(441000, decodeTime(rebased, init.length + first.length, 1));
+    }
+
+    @Test
+    void rebases32BitDecodeTimes() throws IOException {
+        byte[] init = concat(ftyp(), moov(50));
+        Path file = Files.write(tempDir.resolve("clip.m4a"), concat(init, fragment(0, 441000), fragment(0, 882000)));
+        int secondOffset = init.length + fragment(0, 0).length;
+
+        Mp4SegmentIndex.rebaseDecodeTimes(file, init.length);
+
+        byte[] rebased = Files.readAllBytes(file);
+        assertEquals(0, decodeTime(rebased, init.length, 0));
+        assertEquals(441000, decodeTime(rebased, secondOffset, 0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ezmp3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsForSameKeyRunOnce() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> flight.execute("abc_128", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "mp3";
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(() -> flight.execute("abc_128", () -> {
+                    executions.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            // 等待者都已进入等待后再放行
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("mp3", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.size());
+    }
+
+    @Test
+    void failureIsSharedAndKeyIsReleased() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+
+        assertThrows(IOException.class, () -> flight.execute("abc_128", () -> {
+            throw new IOException("upstream");
+        }));
+
+        assertEquals("retry", flight.execute("abc_128", () -> "retry"));
+        assertEquals(0, flight.size());
+    }
+
+    @Test
+    void differentKeysDoNotWait() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+
+        String result = flight.execute("abc_128", () -> flight.execute("def_128", () -> "inner"));
+
+        assertEquals("inner", result);
+    }
+}